@@ -0,0 +1,49 @@
+package journal.de.bord.benchmarks;
+
+import journal.de.bord.api.JournalDeBordApplication;
+import journal.de.bord.api.drivers.DriverService;
+import journal.de.bord.api.drivers.DriverStatisticsService;
+import journal.de.bord.api.drivers.DriverTrafficService;
+import journal.de.bord.api.journal.JournalGenerator;
+import journal.de.bord.api.journal.JournalImportService;
+import journal.de.bord.benchmarks.identity.IdentityStop;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+
+/**
+ * Is the persistence layer of the application, without its web layer, on an
+ * embedded H2 database. The entities of the identity package are the
+ * baselines the application entities are compared with.
+ */
+@Configuration
+@EnableAutoConfiguration
+@EntityScan(basePackageClasses = {JournalDeBordApplication.class, IdentityStop.class})
+@EnableJpaRepositories(basePackageClasses = JournalDeBordApplication.class)
+@Import({
+        DriverService.class,
+        DriverStatisticsService.class,
+        DriverTrafficService.class,
+        JournalImportService.class,
+        JournalGenerator.class
+})
+public class BenchmarkApplication {
+
+    static ConfigurableApplicationContext start() {
+        return new SpringApplicationBuilder(BenchmarkApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties(
+                        "spring.datasource.url=jdbc:h2:mem:benchmarks;DB_CLOSE_DELAY=-1",
+                        "spring.jpa.hibernate.ddl-auto=create-drop",
+                        "spring.main.banner-mode=off",
+                        "logging.level.root=WARN"
+                )
+                .run();
+    }
+
+}
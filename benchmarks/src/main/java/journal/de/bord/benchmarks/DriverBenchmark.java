@@ -0,0 +1,68 @@
+package journal.de.bord.benchmarks;
+
+import journal.de.bord.api.drivers.Driver;
+import journal.de.bord.api.rides.Ride;
+import journal.de.bord.api.stops.Stop;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the driver's checks of its last ride. The checks and the recording
+ * of a saved ride only read the last ride held by the driver, their cost does
+ * not depend on the size of the driver's history, which is not a parameter.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DriverBenchmark {
+
+    private static final int RIDES = 10;
+
+    private Driver driver;
+
+    private Stop nextStop;
+
+    /**
+     * Is a ride departing before the driver's last ride, recording it keeps
+     * the last ride so that the state is the same for every invocation.
+     */
+    private Ride earlierRide;
+
+    @Setup
+    public void setUp() {
+        List<Ride> history = Histories.rides(RIDES, 42);
+        driver = Histories.driver(history);
+        nextStop = new Stop(Histories.START.plusHours(2L * RIDES + 1), 100L * RIDES + 100, null);
+        earlierRide = history.stream()
+                .filter(ride -> !driver.getLastRide().filter(ride::equals).isPresent())
+                .findFirst()
+                .orElseThrow(IllegalStateException::new);
+    }
+
+    @Benchmark
+    public Boolean isDriving() {
+        return driver.isDriving();
+    }
+
+    @Benchmark
+    public Optional<Ride> getLastRide() {
+        return driver.getLastRide();
+    }
+
+    @Benchmark
+    public Boolean canStartWith() {
+        return driver.canStartWith(nextStop);
+    }
+
+    @Benchmark
+    public boolean recordRide() {
+        return driver.recordRide(earlierRide);
+    }
+
+}
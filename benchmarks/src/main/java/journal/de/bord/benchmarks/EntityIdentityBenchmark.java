@@ -0,0 +1,118 @@
+package journal.de.bord.benchmarks;
+
+import journal.de.bord.api.drivers.Driver;
+import journal.de.bord.api.journal.JournalGenerator;
+import journal.de.bord.api.rides.Ride;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the rides and their driver passing through hash based collections
+ * and log messages, as read from an embedded H2 database. The entities stay
+ * managed by an open entity manager so that any association initialized by
+ * equals, hashCode or toString is loaded and counted by the loads counters.
+ * Run it with the gc profiler (-prof gc) to get the allocations.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EntityIdentityBenchmark {
+
+    private static final String DRIVER = "driver";
+
+    private static final long SEED = 42;
+
+    private static final int LOCATIONS = 100;
+
+    @Param({"20", "1000"})
+    private int rides;
+
+    private ConfigurableApplicationContext context;
+
+    private EntityManager entityManager;
+
+    private Statistics statistics;
+
+    private List<Ride> loaded;
+
+    private Driver driver;
+
+    /**
+     * Counts the entities and the collections loaded by each operation.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Loads {
+
+        public long entityLoads;
+
+        public long collectionLoads;
+
+    }
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkApplication.start();
+        context.getBean(JournalGenerator.class).generate(DRIVER, SEED, LOCATIONS, rides);
+        EntityManagerFactory entityManagerFactory = context.getBean(EntityManagerFactory.class);
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        entityManager = entityManagerFactory.createEntityManager();
+        loaded = entityManager.createQuery(
+                "SELECT r FROM Ride r WHERE r.driver.identifier = ?1 ORDER BY r.id", Ride.class
+        ).setParameter(1, DRIVER).setHint(
+                "javax.persistence.fetchgraph", entityManager.getEntityGraph(Ride.RIDE_STOPS)
+        ).getResultList();
+        driver = entityManager.find(Driver.class, DRIVER);
+    }
+
+    @TearDown
+    public void tearDown() {
+        entityManager.close();
+        context.close();
+    }
+
+    @Benchmark
+    public Set<Ride> ridesSet(Loads loads) {
+        long entities = statistics.getEntityLoadCount();
+        long collections = statistics.getCollectionLoadCount();
+        Set<Ride> set = new HashSet<>(loaded);
+        set.contains(loaded.get(0));
+        loads.entityLoads += statistics.getEntityLoadCount() - entities;
+        loads.collectionLoads += statistics.getCollectionLoadCount() - collections;
+        return set;
+    }
+
+    @Benchmark
+    public String ridesLog(Loads loads) {
+        long entities = statistics.getEntityLoadCount();
+        long collections = statistics.getCollectionLoadCount();
+        String message = loaded.toString();
+        loads.entityLoads += statistics.getEntityLoadCount() - entities;
+        loads.collectionLoads += statistics.getCollectionLoadCount() - collections;
+        return message;
+    }
+
+    @Benchmark
+    public String driverLog(Loads loads) {
+        long entities = statistics.getEntityLoadCount();
+        long collections = statistics.getCollectionLoadCount();
+        String message = driver.toString();
+        loads.entityLoads += statistics.getEntityLoadCount() - entities;
+        loads.collectionLoads += statistics.getCollectionLoadCount() - collections;
+        return message;
+    }
+
+}
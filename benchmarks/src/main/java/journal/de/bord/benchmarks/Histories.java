@@ -0,0 +1,73 @@
+package journal.de.bord.benchmarks;
+
+import journal.de.bord.api.drivers.Driver;
+import journal.de.bord.api.locations.Location;
+import journal.de.bord.api.rides.Ride;
+import journal.de.bord.api.rides.TrafficCondition;
+import journal.de.bord.api.stops.Stop;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Builds in memory histories of rides. The rides are shuffled as the order of
+ * a driver's rides read from the database is not specified.
+ */
+final class Histories {
+
+    static final LocalDateTime START = LocalDateTime.of(2020, 1, 1, 8, 0);
+
+    private Histories() {
+    }
+
+    static List<Location> locations(int size) {
+        List<Location> locations = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            Location location = new Location("Location " + i, 50.0 + i * 1e-4, 4.0 + i * 1e-4);
+            location.setId((long) i);
+            locations.add(location);
+        }
+        return locations;
+    }
+
+    static List<Ride> rides(int size, long seed) {
+        List<Location> locations = locations(Math.min(size, 1000) + 1);
+        TrafficCondition[] conditions = TrafficCondition.values();
+        List<Ride> rides = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            Stop departure = stop(2L * i, START.plusHours(2L * i), 100L * i, locations.get(i % locations.size()));
+            Stop arrival = stop(2L * i + 1, START.plusHours(2L * i + 1), 100L * i + 50, locations.get((i + 1) % locations.size()));
+            Ride ride = new Ride(departure, arrival);
+            ride.setId((long) i);
+            ride.setTrafficCondition(conditions[i % conditions.length]);
+            rides.add(ride);
+        }
+        Collections.shuffle(rides, new Random(seed));
+        return rides;
+    }
+
+    static List<Stop> stops(List<Ride> rides) {
+        List<Stop> stops = new ArrayList<>(rides.size() * 2);
+        for (Ride ride : rides) {
+            stops.add(ride.getDeparture());
+            stops.add(ride.getArrival());
+        }
+        return stops;
+    }
+
+    static Driver driver(List<Ride> rides) {
+        Driver driver = new Driver("driver", 1000L, rides, new ArrayList<>(), stops(rides));
+        rides.forEach(ride -> ride.setDriver(driver));
+        return driver;
+    }
+
+    private static Stop stop(long id, LocalDateTime moment, long odometerValue, Location location) {
+        Stop stop = new Stop(moment, odometerValue, location);
+        stop.setId(id);
+        return stop;
+    }
+
+}
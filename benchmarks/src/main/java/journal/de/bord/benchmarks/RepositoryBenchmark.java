@@ -0,0 +1,87 @@
+package journal.de.bord.benchmarks;
+
+import journal.de.bord.api.drivers.DriverRepository;
+import journal.de.bord.api.journal.JournalGenerator;
+import journal.de.bord.api.rides.Ride;
+import journal.de.bord.api.rides.RideRepository;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the statistics queries and the rides page query against an
+ * embedded H2 database holding a driver with a generated journal.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RepositoryBenchmark {
+
+    private static final String DRIVER = "driver";
+
+    private static final long SEED = 42;
+
+    private static final int LOCATIONS = 1000;
+
+    private static final LocalDateTime FROM = JournalGenerator.START;
+
+    @Param({"1000", "10000"})
+    private int rides;
+
+    private ConfigurableApplicationContext context;
+
+    private DriverRepository driverRepository;
+
+    private RideRepository rideRepository;
+
+    private Pageable firstPage;
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkApplication.start();
+        driverRepository = context.getBean(DriverRepository.class);
+        rideRepository = context.getBean(RideRepository.class);
+        firstPage = PageRequest.of(0, 20, Sort.by("departure.moment").descending());
+        context.getBean(JournalGenerator.class).generate(DRIVER, SEED, LOCATIONS, rides);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Long countDriverRides() {
+        return driverRepository.countDriverRides(DRIVER);
+    }
+
+    @Benchmark
+    public Long countDriverLocations() {
+        return driverRepository.countDriverLocations(DRIVER);
+    }
+
+    @Benchmark
+    public Long sumDriverRidesDistances() {
+        return driverRepository.sumDriverRidesDistances(DRIVER);
+    }
+
+    @Benchmark
+    public Long sumDriverRidesDistancesBetween() {
+        return driverRepository.sumDriverRidesDistancesBetween(DRIVER, FROM, FROM.plusMonths(1));
+    }
+
+    @Benchmark
+    public Page<Ride> findByDriverIdentifier() {
+        return rideRepository.findByDriverIdentifier(DRIVER, firstPage);
+    }
+
+}
@@ -0,0 +1,61 @@
+package journal.de.bord.benchmarks;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import journal.de.bord.api.locations.Location;
+import journal.de.bord.api.rides.Ride;
+import journal.de.bord.api.stops.Stop;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the serialization of the pages returned by the rides, stops and
+ * locations endpoints. The object mapper is configured as the one of the
+ * application.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializationBenchmark {
+
+    @Param({"20", "100"})
+    private int pageSize;
+
+    private ObjectMapper objectMapper;
+
+    private List<Ride> rides;
+
+    private List<Stop> stops;
+
+    private List<Location> locations;
+
+    @Setup
+    public void setUp() {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        rides = Histories.rides(pageSize, 42);
+        stops = Histories.stops(rides).subList(0, pageSize);
+        locations = Histories.locations(pageSize);
+    }
+
+    @Benchmark
+    public byte[] ridesPage() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(rides);
+    }
+
+    @Benchmark
+    public byte[] stopsPage() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(stops);
+    }
+
+    @Benchmark
+    public byte[] locationsPage() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(locations);
+    }
+
+}
@@ -0,0 +1,134 @@
+package journal.de.bord.benchmarks;
+
+import journal.de.bord.api.drivers.Driver;
+import journal.de.bord.api.locations.Location;
+import journal.de.bord.api.stops.Stop;
+import journal.de.bord.benchmarks.identity.IdentityStop;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the insertion of 10k stops in one transaction into an embedded H2
+ * database. The identity strategy inserts stops identified by an identity
+ * column, one statement at a time, as the stops were before their ids were
+ * allocated by blocks. The hilo strategy inserts the application stops, whose
+ * ids are allocated by blocks of 50 so that the inserts are sent by JDBC
+ * batches. The persistence context is flushed and cleared every batch, as the
+ * journal import does. The statements counter gives the JDBC statements
+ * prepared by each insertion, the sequence reads included.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class StopInsertBenchmark {
+
+    private static final String DRIVER = "driver";
+
+    private static final int STOPS = 10_000;
+
+    private static final int BATCH_SIZE = 50;
+
+    private static final LocalDateTime START = LocalDateTime.of(2020, 1, 1, 8, 0);
+
+    @Param({"identity", "hilo"})
+    private String strategy;
+
+    private ConfigurableApplicationContext context;
+
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    private Long locationId;
+
+    /**
+     * Counts the statements prepared by each insertion.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Statements {
+
+        public long statements;
+
+    }
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkApplication.start();
+        entityManagerFactory = context.getBean(EntityManagerFactory.class);
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        EntityManager entityManager = entityManagerFactory.createEntityManager();
+        entityManager.getTransaction().begin();
+        Driver driver = new Driver(DRIVER, 1000L);
+        entityManager.persist(driver);
+        Location location = new Location("Location", 50.0, 4.0);
+        location.setId(null);
+        location.setDriver(driver);
+        entityManager.persist(location);
+        entityManager.getTransaction().commit();
+        entityManager.close();
+        locationId = location.getId();
+    }
+
+    /**
+     * Deletes the stops inserted by the last insertion so that each insertion
+     * starts from the same tables.
+     */
+    @TearDown(Level.Invocation)
+    public void deleteStops() {
+        EntityManager entityManager = entityManagerFactory.createEntityManager();
+        entityManager.getTransaction().begin();
+        entityManager.createQuery("DELETE FROM " + entityName()).executeUpdate();
+        entityManager.getTransaction().commit();
+        entityManager.close();
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public void insertStops(Statements statements) {
+        long prepared = statistics.getPrepareStatementCount();
+        EntityManager entityManager = entityManagerFactory.createEntityManager();
+        entityManager.getTransaction().begin();
+        for (int i = 0; i < STOPS; i++) {
+            Driver driver = entityManager.getReference(Driver.class, DRIVER);
+            Location location = entityManager.getReference(Location.class, locationId);
+            entityManager.persist(stop(START.plusHours(i), 1000L * i, location, driver));
+            if ((i + 1) % BATCH_SIZE == 0) {
+                entityManager.flush();
+                entityManager.clear();
+            }
+        }
+        entityManager.getTransaction().commit();
+        entityManager.close();
+        statements.statements += statistics.getPrepareStatementCount() - prepared;
+    }
+
+    private Object stop(LocalDateTime moment, long odometerValue, Location location, Driver driver) {
+        if ("identity".equals(strategy)) {
+            return new IdentityStop(moment, odometerValue, location, driver);
+        }
+        Stop stop = new Stop(moment, odometerValue, location);
+        stop.setDriver(driver);
+        return stop;
+    }
+
+    private String entityName() {
+        return "identity".equals(strategy) ? "IdentityStop" : "Stop";
+    }
+
+}
@@ -0,0 +1,62 @@
+package journal.de.bord.benchmarks.identity;
+
+import journal.de.bord.api.drivers.Driver;
+import journal.de.bord.api.locations.Location;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Is a stop identified as the stops were before their ids were allocated by
+ * blocks: by an identity column. The database gives the id of each row once
+ * it is inserted, so Hibernate sends the inserts one at a time. It has the
+ * columns, the unique key and the indexes of the stop table.
+ */
+@Entity
+@Table(
+    uniqueConstraints = {
+        @UniqueConstraint(columnNames = {
+            "moment",
+            "odometerValue",
+            "driver_identifier",
+            "location"
+        })
+    },
+    indexes = {
+        @Index(name = "identity_stop_driver_moment_index", columnList = "driver_identifier, moment"),
+        @Index(name = "identity_stop_driver_location_moment_index", columnList = "driver_identifier, location, moment")
+    }
+)
+public class IdentityStop {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    private LocalDateTime moment;
+
+    private Long odometerValue;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "location", referencedColumnName = "id")
+    private Location location;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn
+    private Driver driver;
+
+    protected IdentityStop() {
+    }
+
+    public IdentityStop(LocalDateTime moment, Long odometerValue, Location location, Driver driver) {
+        this.moment = moment;
+        this.odometerValue = odometerValue;
+        this.location = location;
+        this.driver = driver;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+}
@@ -0,0 +1,110 @@
+package journal.de.bord.api.configuration;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtException;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Clock;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Keeps the tokens verified by another decoder so that a token sent with
+ * several requests is only verified once. The tokens are identified by their
+ * SHA-256 hash and are kept until they expire, the tokens without expiration
+ * time are verified each time. The least recently used tokens are evicted
+ * when the cache is full.
+ */
+public class CachingJwtDecoder implements JwtDecoder {
+
+    private final JwtDecoder delegate;
+
+    private final Counter hits;
+
+    private final Counter misses;
+
+    private final Clock clock;
+
+    private final Map<String, Jwt> tokens;
+
+    /**
+     * Initializes a cache of the tokens verified by the given decoder.
+     *
+     * @param delegate is the decoder verifying the tokens.
+     * @param maximumSize is the maximum number of tokens kept.
+     * @param meterRegistry is the registry counting the cache hits and misses.
+     * @throws NullPointerException when the delegate or the registry argument
+     * is null.
+     * @throws IllegalArgumentException when the maximum size is not positive.
+     */
+    public CachingJwtDecoder(JwtDecoder delegate, int maximumSize, MeterRegistry meterRegistry) {
+        this(delegate, maximumSize, meterRegistry, Clock.systemUTC());
+    }
+
+    CachingJwtDecoder(JwtDecoder delegate, int maximumSize, MeterRegistry meterRegistry, Clock clock) {
+        Objects.requireNonNull(delegate, "\"delegate\" argument is null");
+        Objects.requireNonNull(meterRegistry, "\"meterRegistry\" argument is null");
+        Objects.requireNonNull(clock, "\"clock\" argument is null");
+        if (maximumSize <= 0) {
+            throw new IllegalArgumentException("The maximum size is not positive: " + maximumSize);
+        }
+        this.delegate = delegate;
+        this.hits = meterRegistry.counter("journal.jwt.cache", "result", "hit");
+        this.misses = meterRegistry.counter("journal.jwt.cache", "result", "miss");
+        this.clock = clock;
+        this.tokens = new LinkedHashMap<String, Jwt>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Jwt> eldest) {
+                return size() > maximumSize;
+            }
+        };
+    }
+
+    @Override
+    public Jwt decode(String token) throws JwtException {
+        String key = hash(token);
+        Jwt jwt;
+        synchronized (tokens) {
+            jwt = tokens.get(key);
+            if (jwt != null && !isValid(jwt)) {
+                tokens.remove(key);
+                jwt = null;
+            }
+        }
+        if (jwt != null) {
+            hits.increment();
+            return jwt;
+        }
+        misses.increment();
+        jwt = delegate.decode(token);
+        if (jwt.getExpiresAt() != null) {
+            synchronized (tokens) {
+                tokens.put(key, jwt);
+            }
+        }
+        return jwt;
+    }
+
+    private boolean isValid(Jwt jwt) {
+        return Instant.now(clock).isBefore(jwt.getExpiresAt());
+    }
+
+    private static String hash(String token) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] hash = digest.digest(token.getBytes(StandardCharsets.US_ASCII));
+            return Base64.getEncoder().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+}
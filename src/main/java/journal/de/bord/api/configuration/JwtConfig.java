@@ -0,0 +1,58 @@
+package journal.de.bord.api.configuration;
+
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.proc.JWSVerificationKeySelector;
+import com.nimbusds.jose.proc.SecurityContext;
+import com.nimbusds.jwt.proc.DefaultJWTProcessor;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtValidators;
+import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
+
+import java.time.Duration;
+
+/**
+ * Configures the verification of the access tokens. The key set is read from
+ * security.jwt.jwk-set-location, which is a file, class path or URL location,
+ * and defaults to the authorization server key set URI. The tokens issuer is
+ * checked when the issuer URI is given. The verified tokens are cached until
+ * they expire.
+ */
+@Configuration
+public class JwtConfig {
+
+    @Value("${security.jwt.jwk-set-location:${spring.security.oauth2.resourceserver.jwt.jwk-set-uri}}")
+    private String jwkSetLocation;
+
+    @Value("${spring.security.oauth2.resourceserver.jwt.issuer-uri:}")
+    private String issuer;
+
+    @Value("${security.jwt.jwk-set-refresh-interval:5m}")
+    private Duration jwkSetRefreshInterval;
+
+    @Value("${security.jwt.cache-size:10000}")
+    private int cacheSize;
+
+    @Bean
+    public RefreshingJwkSource jwkSource(ResourceLoader resourceLoader) {
+        return new RefreshingJwkSource(resourceLoader.getResource(jwkSetLocation), jwkSetRefreshInterval);
+    }
+
+    @Bean
+    public JwtDecoder jwtDecoder(RefreshingJwkSource jwkSource, MeterRegistry meterRegistry) {
+        DefaultJWTProcessor<SecurityContext> processor = new DefaultJWTProcessor<>();
+        processor.setJWSKeySelector(new JWSVerificationKeySelector<>(JWSAlgorithm.RS256, jwkSource));
+        // The claims are checked by the validators of the Spring decoder.
+        processor.setJWTClaimsSetVerifier((claims, context) -> { });
+        NimbusJwtDecoder decoder = new NimbusJwtDecoder(processor);
+        if (!issuer.isEmpty()) {
+            decoder.setJwtValidator(JwtValidators.createDefaultWithIssuer(issuer));
+        }
+        return new CachingJwtDecoder(decoder, cacheSize, meterRegistry);
+    }
+
+}
@@ -0,0 +1,111 @@
+package journal.de.bord.api.configuration;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.apache.tomcat.jdbc.pool.ConnectionPool;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.function.ToLongFunction;
+
+/**
+ * Registers the meters that are not provided by the Spring Boot metrics
+ * auto-configuration.
+ */
+@Configuration
+public class MetricsConfig {
+
+    /**
+     * Binds the tomcat-jdbc pool gauges when it is the data source pool
+     * (spring.datasource.type). The active and idle connections are also
+     * given by the jdbc.connections meters, this adds the threads waiting for
+     * a connection (pending, as hikaricp.connections.pending) and the borrowed
+     * and returned connections. The tomcat-jdbc pool does not measure the time
+     * spent waiting. With the default pool (HikariCP) the wait time is given
+     * by the hikaricp.connections.acquire timer.
+     */
+    @Bean
+    public MeterBinder tomcatJdbcPoolMetrics(ObjectProvider<DataSource> dataSources) {
+        return registry -> dataSources.orderedStream().forEach(dataSource -> {
+            ConnectionPool pool = unwrapTomcatPool(dataSource);
+            if (pool != null) {
+                String name = pool.getName();
+                Gauge.builder("tomcat.jdbc.connections.active", pool, ConnectionPool::getActive)
+                        .tag("pool", name)
+                        .register(registry);
+                Gauge.builder("tomcat.jdbc.connections.idle", pool, ConnectionPool::getIdle)
+                        .tag("pool", name)
+                        .register(registry);
+                Gauge.builder("tomcat.jdbc.connections.pending", pool, ConnectionPool::getWaitCount)
+                        .description("Threads waiting for a connection")
+                        .tag("pool", name)
+                        .register(registry);
+                FunctionCounter.builder("tomcat.jdbc.connections.borrowed", pool, ConnectionPool::getBorrowedCount)
+                        .tag("pool", name)
+                        .register(registry);
+                FunctionCounter.builder("tomcat.jdbc.connections.returned", pool, ConnectionPool::getReturnedCount)
+                        .tag("pool", name)
+                        .register(registry);
+            }
+        });
+    }
+
+    /**
+     * Binds the hits, misses and entries of each second-level cache region.
+     * The hibernate.second.level.cache.requests meters only give the totals
+     * of all the regions. The region statistics are looked up on each read
+     * because they are replaced when the statistics are cleared.
+     */
+    @Bean
+    public MeterBinder secondLevelCacheMetrics(EntityManagerFactory entityManagerFactory) {
+        return registry -> {
+            Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+            for (String region : statistics.getSecondLevelCacheRegionNames()) {
+                if (statistics.getCacheRegionStatistics(region) == null) {
+                    continue;
+                }
+                FunctionCounter.builder("hibernate.second.level.cache.region.requests", statistics,
+                        s -> regionStatistic(s, region, CacheRegionStatistics::getHitCount))
+                        .tags("region", region, "result", "hit")
+                        .register(registry);
+                FunctionCounter.builder("hibernate.second.level.cache.region.requests", statistics,
+                        s -> regionStatistic(s, region, CacheRegionStatistics::getMissCount))
+                        .tags("region", region, "result", "miss")
+                        .register(registry);
+                Gauge.builder("hibernate.second.level.cache.region.entries", statistics,
+                        s -> regionStatistic(s, region, CacheRegionStatistics::getElementCountInMemory))
+                        .tag("region", region)
+                        .register(registry);
+            }
+        };
+    }
+
+    private static double regionStatistic(
+            Statistics statistics,
+            String region,
+            ToLongFunction<CacheRegionStatistics> statistic
+    ) {
+        CacheRegionStatistics cache = statistics.getCacheRegionStatistics(region);
+        return cache == null ? 0 : statistic.applyAsLong(cache);
+    }
+
+    private static ConnectionPool unwrapTomcatPool(DataSource dataSource) {
+        try {
+            if (dataSource.isWrapperFor(org.apache.tomcat.jdbc.pool.DataSource.class)) {
+                return dataSource.unwrap(org.apache.tomcat.jdbc.pool.DataSource.class).createPool();
+            }
+        } catch (SQLException e) {
+            return null;
+        }
+        return null;
+    }
+
+}
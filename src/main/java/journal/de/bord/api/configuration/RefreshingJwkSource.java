@@ -0,0 +1,139 @@
+package journal.de.bord.api.configuration;
+
+import com.nimbusds.jose.KeySourceException;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKSelector;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.source.JWKSource;
+import com.nimbusds.jose.proc.SecurityContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.core.io.Resource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Gets the keys verifying the tokens signatures from a JSON Web Key set
+ * stored in a file, in the class path or served by the authorization server.
+ * The key set is loaded again in the background at a fixed interval, and
+ * when a token is signed by an unknown key. The last loaded keys are kept
+ * when a refresh fails so that the tokens are still verified while the
+ * authorization server is unavailable.
+ */
+public class RefreshingJwkSource implements JWKSource<SecurityContext>, DisposableBean {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RefreshingJwkSource.class);
+
+    /**
+     * Is the minimum time between two refreshes triggered by unknown keys, so
+     * that the tokens signed by foreign keys, or sent while the authorization
+     * server is unavailable, do not flood it.
+     */
+    private static final Duration MIN_REFRESH_INTERVAL = Duration.ofSeconds(30);
+
+    private static final int CONNECT_TIMEOUT = 2_000;
+    private static final int READ_TIMEOUT = 2_000;
+    private static final int SIZE_LIMIT = 50 * 1024;
+
+    private final Resource location;
+
+    private final ScheduledExecutorService scheduler;
+
+    private volatile JWKSet keys;
+
+    private Instant refreshedAt = Instant.MIN;
+
+    /**
+     * Initializes the source and schedules the refreshes of the key set. The
+     * first refresh is started immediately.
+     *
+     * @param location is the location of the key set.
+     * @param refreshInterval is the time between two refreshes.
+     * @throws NullPointerException when one of the arguments is null.
+     */
+    public RefreshingJwkSource(Resource location, Duration refreshInterval) {
+        Objects.requireNonNull(location, "\"location\" argument is null");
+        Objects.requireNonNull(refreshInterval, "\"refreshInterval\" argument is null");
+        this.location = location;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "jwk-set-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.scheduler.scheduleWithFixedDelay(
+                this::refreshQuietly, 0, refreshInterval.toMillis(), TimeUnit.MILLISECONDS
+        );
+    }
+
+    @Override
+    public List<JWK> get(JWKSelector selector, SecurityContext context) throws KeySourceException {
+        JWKSet current = keys;
+        if (current != null) {
+            List<JWK> selected = selector.select(current);
+            if (!selected.isEmpty()) {
+                return selected;
+            }
+        }
+        return selector.select(refreshIfStale());
+    }
+
+    @Override
+    public void destroy() {
+        scheduler.shutdownNow();
+    }
+
+    private void refreshQuietly() {
+        try {
+            refresh();
+        } catch (KeySourceException e) {
+            Throwable cause = e.getCause() == null ? e : e.getCause();
+            LOGGER.warn("The key set could not be loaded from {}: {}", location, cause.getMessage());
+        }
+    }
+
+    private synchronized JWKSet refreshIfStale() throws KeySourceException {
+        if (Instant.now().isBefore(refreshedAt.plus(MIN_REFRESH_INTERVAL))) {
+            if (keys == null) {
+                throw new KeySourceException("The key set is not loaded from " + location);
+            }
+            return keys;
+        }
+        return refresh();
+    }
+
+    private synchronized JWKSet refresh() throws KeySourceException {
+        refreshedAt = Instant.now();
+        try {
+            keys = load();
+            return keys;
+        } catch (IOException | ParseException e) {
+            if (keys == null) {
+                throw new KeySourceException("The key set could not be loaded from " + location, e);
+            }
+            LOGGER.warn("The key set could not be refreshed from {}, the last keys are used: {}", location, e.getMessage());
+            return keys;
+        }
+    }
+
+    private JWKSet load() throws IOException, ParseException {
+        URL url = location.isFile() ? null : location.getURL();
+        if (url != null && url.getProtocol().startsWith("http")) {
+            return JWKSet.load(url, CONNECT_TIMEOUT, READ_TIMEOUT, SIZE_LIMIT);
+        }
+        try (InputStream input = location.getInputStream()) {
+            return JWKSet.load(input);
+        }
+    }
+
+}
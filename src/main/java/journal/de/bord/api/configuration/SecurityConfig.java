@@ -1,5 +1,6 @@
 package journal.de.bord.api.configuration;
 
+import org.springframework.boot.actuate.autoconfigure.security.servlet.EndpointRequest;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpMethod;
@@ -30,6 +31,9 @@ public class SecurityConfig extends WebSecurityConfigurerAdapter {
                 .addFilterBefore(corsFilter(), SessionManagementFilter.class)
                 .authorizeRequests(authorization -> authorization
                         .antMatchers(HttpMethod.GET, "/").permitAll()
+                        // The actuator endpoints are served on the management
+                        // port, which is not exposed publicly.
+                        .requestMatchers(EndpointRequest.toAnyEndpoint()).permitAll()
                         // This is required for the browser preflight requests.
                         .antMatchers(HttpMethod.OPTIONS, "**").permitAll()
                         .antMatchers(HttpMethod.GET, "/api/**").hasAuthority("SCOPE_read")
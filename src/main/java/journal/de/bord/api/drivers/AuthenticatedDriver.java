@@ -0,0 +1,21 @@
+package journal.de.bord.api.drivers;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a handler parameter receiving the driver of the request path
+ * ({driverId} variable). The request is rejected with the forbidden status
+ * (403) when the driver is not the authenticated user, and with the not found
+ * status (404) when the driver does not exist. The driver is given as a
+ * reference: it is only loaded when one of its properties, other than its
+ * identifier, is read.
+ *
+ * @see AuthenticatedDriverResolver
+ */
+@Target(ElementType.PARAMETER)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface AuthenticatedDriver {
+}
@@ -0,0 +1,77 @@
+package journal.de.bord.api.drivers;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.bind.support.WebDataBinderFactory;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
+import org.springframework.web.method.support.ModelAndViewContainer;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.security.Principal;
+import java.util.Map;
+
+/**
+ * Resolves the parameters annotated with {@link AuthenticatedDriver}. The
+ * driver is authorized and looked up once by request, the reference is kept
+ * in the request attributes.
+ */
+@Component
+public class AuthenticatedDriverResolver implements HandlerMethodArgumentResolver {
+
+    private static final String DRIVER_ID_VARIABLE = "driverId";
+
+    private static final String DRIVER_ATTRIBUTE = AuthenticatedDriverResolver.class.getName() + ".driver";
+
+    @Autowired
+    private DriverService driverService;
+
+    @Override
+    public boolean supportsParameter(MethodParameter parameter) {
+        return parameter.hasParameterAnnotation(AuthenticatedDriver.class)
+                && Driver.class.equals(parameter.getParameterType());
+    }
+
+    @Override
+    public Driver resolveArgument(
+            MethodParameter parameter,
+            ModelAndViewContainer container,
+            NativeWebRequest request,
+            WebDataBinderFactory binderFactory
+    ) {
+        Driver resolved = (Driver) request.getAttribute(DRIVER_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+        if (resolved != null) {
+            return resolved;
+        }
+        String driverId = driverIdOf(request);
+        Principal user = request.getUserPrincipal();
+        if (user == null || !user.getName().equals(driverId)) {
+            throw new ResponseStatusException(HttpStatus.FORBIDDEN);
+        }
+        if (!driverService.exist(driverId)) {
+            String msg = String.format("Unknown driver with id: %s.", driverId);
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, msg);
+        }
+        Driver driver = driverService.getReference(driverId);
+        request.setAttribute(DRIVER_ATTRIBUTE, driver, RequestAttributes.SCOPE_REQUEST);
+        return driver;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static String driverIdOf(NativeWebRequest request) {
+        Map<String, String> variables = (Map<String, String>) request.getAttribute(
+                HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE,
+                RequestAttributes.SCOPE_REQUEST
+        );
+        String driverId = variables == null ? null : variables.get(DRIVER_ID_VARIABLE);
+        if (driverId == null) {
+            throw new IllegalStateException("The request path has no driver identifier.");
+        }
+        return driverId;
+    }
+
+}
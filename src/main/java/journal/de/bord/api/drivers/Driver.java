@@ -3,15 +3,19 @@ package journal.de.bord.api.drivers;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import journal.de.bord.api.locations.Location;
 import journal.de.bord.api.rides.Ride;
-import journal.de.bord.api.rides.RideDto;
 import journal.de.bord.api.stops.Stop;
-import journal.de.bord.api.stops.StopDto;
-import lombok.AllArgsConstructor;
-import lombok.Data;
+import lombok.Getter;
 import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import javax.persistence.Entity;
+import javax.persistence.FetchType;
 import javax.persistence.Id;
+import javax.persistence.JoinColumn;
+import javax.persistence.ManyToOne;
 import javax.persistence.OneToMany;
 import javax.validation.constraints.Min;
 import javax.validation.constraints.NotBlank;
@@ -19,18 +23,30 @@ import javax.validation.constraints.NotNull;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
-import java.util.stream.Collectors;
 
+/**
+ * Represents a driver keeping a journal. The drivers are read on every
+ * request, they are kept in the second-level cache. Their collections are not
+ * cached. The driver's last ride is kept apart from the rides collection so
+ * that the start of a ride is checked without reading the driver's history.
+ */
 @Entity
-@Data
-@AllArgsConstructor
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+@Getter
+@Setter
+@ToString
 @NoArgsConstructor
 public class Driver {
 
-    private static Optional<Ride> getLastRide(List<Ride> rides) {
-        return rides.stream().max(Comparator.comparing(Ride::getDepartureMoment));
-    }
+    /**
+     * Orders the rides by departure, the rides departing at the same moment
+     * by id, like the rides are read from the most recent one.
+     */
+    private static final Comparator<Ride> DEPARTURE_ORDER = Comparator
+            .comparing(Ride::getDepartureMoment)
+            .thenComparing(Ride::getId, Comparator.nullsFirst(Comparator.naturalOrder()));
 
     @Id
     private String identifier;
@@ -41,16 +57,29 @@ public class Driver {
 
     @OneToMany(mappedBy = "driver")
     @JsonIgnore
+    @ToString.Exclude
     private List<Ride> rides;
 
     @OneToMany(mappedBy = "driver")
     @JsonIgnore
+    @ToString.Exclude
     private List<Location> locations;
 
     @OneToMany(mappedBy = "driver")
     @JsonIgnore
+    @ToString.Exclude
     private List<Stop> stops;
 
+    /**
+     * Is the ride with the latest departure, null when the driver has not
+     * driven yet. It is maintained by the services writing the rides.
+     */
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "last_ride_id")
+    @JsonIgnore
+    @ToString.Exclude
+    private Ride lastRide;
+
     /**
      * Initializes a new driver. This should be used during the driver's
      * creation.
@@ -62,19 +91,60 @@ public class Driver {
         this(identifier, objective, new ArrayList<>(), new ArrayList<>(), new ArrayList<>());
     }
 
+    /**
+     * Initializes a driver with the given history. The last ride is the given
+     * ride with the latest departure.
+     *
+     * @param identifier is the driver identifier.
+     * @param objective is the driver's kilometers objective.
+     * @param rides are the driver's rides.
+     * @param locations are the driver's locations.
+     * @param stops are the driver's stops.
+     */
+    public Driver(
+            String identifier,
+            Long objective,
+            List<Ride> rides,
+            List<Location> locations,
+            List<Stop> stops
+    ) {
+        this.identifier = identifier;
+        this.objective = objective;
+        this.rides = rides;
+        this.locations = locations;
+        this.stops = stops;
+        this.lastRide = rides.stream().max(DEPARTURE_ORDER).orElse(null);
+    }
+
     public Boolean hasDriven() {
-        return !rides.isEmpty();
+        return lastRide != null;
     }
 
     @JsonIgnore
     public Boolean isDriving() {
-        Optional<Ride> lastDrive = Driver.getLastRide(rides);
-        return lastDrive.isPresent() && !lastDrive.get().isDone();
+        return lastRide != null && !lastRide.isDone();
     }
 
     @JsonIgnore
     public Optional<Ride> getLastRide() {
-        return Driver.getLastRide(rides);
+        return Optional.ofNullable(lastRide);
+    }
+
+    /**
+     * Records a ride saved for this driver. The ride becomes the driver's
+     * last ride when it departs after the current last ride.
+     *
+     * @param ride is the saved ride.
+     * @return true when the ride became the driver's last ride.
+     * @throws NullPointerException when the ride argument is null.
+     */
+    public boolean recordRide(Ride ride) {
+        Objects.requireNonNull(ride, "\"ride\" argument is null");
+        if (lastRide == null || DEPARTURE_ORDER.compare(ride, lastRide) > 0) {
+            lastRide = ride;
+            return true;
+        }
+        return false;
     }
 
     /**
@@ -100,37 +170,31 @@ public class Driver {
                 && stop.isAfter(lastRide.get().getArrival());
     }
 
-    public Location getLocationById(Long identifier) {
-        List<Location> results = locations.stream()
-                .filter(l -> l.getId().equals(identifier))
-                .collect(Collectors.toList());
-        return results.isEmpty() ? null : results.get(0);
-    }
-
-    public boolean ownsLocationById(Long identifier) {
-        return getLocationById(identifier) != null;
-    }
-
-    public Stop getStopById(Long identifier) {
-        List<Stop> results = stops.stream()
-                .filter(s -> s.getId().equals(identifier))
-                .collect(Collectors.toList());
-        return results.isEmpty() ? null : results.get(0);
-    }
-
-    public boolean ownsStopById(Long id) {
-        return getStopById(id) != null;
-    }
 
-    public boolean ownsRideStops(RideDto ride) {
-        return ownsStopById(ride.getDeparture()) && (ride.getArrival() == null || ownsStopById(ride.getArrival()));
+    /**
+     * Tells if the given object is the same driver. Two drivers are the same
+     * when they have the same identifier. The identifier of the other driver
+     * is read with its getter so that a proxy is compared without being
+     * initialized.
+     */
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof Driver)) {
+            return false;
+        }
+        return identifier != null && identifier.equals(((Driver) other).getIdentifier());
     }
 
-    public Ride getRideById(Long identifier) {
-        List<Ride> results = rides.stream()
-                .filter(s -> s.getId().equals(identifier))
-                .collect(Collectors.toList());
-        return results.isEmpty() ? null : results.get(0);
+    /**
+     * Gets the hash code of the identifier, which is given when the driver is
+     * created and does not change afterwards.
+     */
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(identifier);
     }
 
-}
\ No newline at end of file
+}
@@ -1,6 +1,7 @@
 package journal.de.bord.api.drivers;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
@@ -8,6 +9,9 @@ import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
 
 import javax.validation.Valid;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Locale;
 
 /**
  * The controller handles the REST interface exposing the drivers resources.
@@ -62,7 +66,7 @@ public class DriverController {
         try {
             String userId = authentication.getName();
             if (userId.equals(identifier)) {
-                return ResponseEntity.ok(driverService.findById(identifier));
+                return ResponseEntity.ok(DriverView.of(driverService.findById(identifier)));
             } else {
                 throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Restricted to the owner.");
             }
@@ -96,6 +100,108 @@ public class DriverController {
         }
     }
 
+    /**
+     * Gets the number of rides and the distance driven by a driver during a
+     * period. A ride belongs to the period of its departure moment.
+     *
+     * @param identifier is the identifier of the driver.
+     * @param from is the start of the period, included (ISO date time).
+     * @param to is the end of the period, excluded (ISO date time).
+     * @return the response containing the period statistics.
+     * @throws ResponseStatusException 404 when the specified driver does not
+     * exist, 403 when it is not the authenticated driver or 400 when the
+     * period ends before it starts.
+     */
+    @GetMapping(path = "/api/drivers/{identifier}/statistics/period")
+    public ResponseEntity periodStatistics(
+            Authentication authentication,
+            @PathVariable("identifier") String identifier,
+            @RequestParam("from") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam("to") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to
+    ) {
+        try {
+            String userId = authentication.getName();
+            if (userId.equals(identifier)) {
+                return ResponseEntity.ok(driverService.getDriverStatistics(identifier, from, to));
+            } else {
+                throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Restricted to the owner.");
+            }
+        } catch (NullPointerException | IllegalArgumentException exception) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, exception.getMessage());
+        } catch (IllegalStateException exception) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, exception.getMessage());
+        }
+    }
+
+    /**
+     * Gets the number of rides, the distance and the traffic conditions of a
+     * driver for each day, week or month of a range. The periods without
+     * rides are left out.
+     *
+     * @param identifier is the identifier of the driver.
+     * @param granularity is the length of the periods: day, week or month.
+     * @param from is the first day of the range, included (ISO date).
+     * @param to is the last day of the range, excluded (ISO date).
+     * @return the response containing the time series.
+     * @throws ResponseStatusException 404 when the specified driver does not
+     * exist, 403 when it is not the authenticated driver or 400 when the
+     * granularity is unknown or the range ends before it starts.
+     */
+    @GetMapping(path = "/api/drivers/{identifier}/statistics/timeseries")
+    public ResponseEntity timeSeries(
+            Authentication authentication,
+            @PathVariable("identifier") String identifier,
+            @RequestParam(value = "granularity", defaultValue = "week") String granularity,
+            @RequestParam("from") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam("to") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to
+    ) {
+        Granularity periods;
+        try {
+            periods = Granularity.valueOf(granularity.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException exception) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unknown granularity: " + granularity);
+        }
+        try {
+            String userId = authentication.getName();
+            if (userId.equals(identifier)) {
+                return ResponseEntity.ok(driverService.getDriverTimeSeries(identifier, periods, from, to));
+            } else {
+                throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Restricted to the owner.");
+            }
+        } catch (NullPointerException | IllegalArgumentException exception) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, exception.getMessage());
+        } catch (IllegalStateException exception) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, exception.getMessage());
+        }
+    }
+
+    /**
+     * Gets the rides of a driver by hour of the week of their departure: for
+     * each hour of each day, the number of rides, their traffic conditions
+     * and their mean duration and distance.
+     *
+     * @param identifier is the identifier of the driver.
+     * @return the response containing the traffic matrix.
+     * @throws ResponseStatusException 404 when the specified driver does not
+     * exist or 403 when it is not the authenticated driver.
+     */
+    @GetMapping(path = "/api/drivers/{identifier}/statistics/traffic")
+    public ResponseEntity traffic(
+            Authentication authentication,
+            @PathVariable("identifier") String identifier
+    ) {
+        try {
+            String userId = authentication.getName();
+            if (userId.equals(identifier)) {
+                return ResponseEntity.ok(driverService.getDriverTrafficMatrix(identifier));
+            } else {
+                throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Restricted to the owner.");
+            }
+        } catch (NullPointerException | IllegalArgumentException exception) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, exception.getMessage());
+        }
+    }
+
     /**
      * Gets all the drivers.
      *
@@ -103,7 +209,7 @@ public class DriverController {
      */
     @GetMapping(path = DRIVERS_RESOURCE_PATH)
     public ResponseEntity drivers() {
-        return ResponseEntity.ok(driverService.findAll());
+        return ResponseEntity.ok(driverService.findAllViews());
     }
 
     /**
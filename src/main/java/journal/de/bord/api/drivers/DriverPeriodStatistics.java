@@ -0,0 +1,25 @@
+package journal.de.bord.api.drivers;
+
+import lombok.Value;
+
+import java.time.LocalDateTime;
+
+/**
+ * Holds the number of rides and the distance driven by a driver during a
+ * period, with the driver's objective to track them against. A ride belongs
+ * to the period of its departure moment.
+ */
+@Value
+public class DriverPeriodStatistics {
+
+    LocalDateTime from;
+
+    LocalDateTime to;
+
+    Long rides;
+
+    Long distance;
+
+    Long objective;
+
+}
@@ -4,22 +4,53 @@ import journal.de.bord.api.drivers.Driver;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
 
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
 public interface DriverRepository extends CrudRepository<Driver, String> {
 
+    /**
+     * Finds a driver with its last ride and the ride stops, in a single
+     * statement.
+     */
+    @Query("SELECT d FROM Driver d\n" +
+            "LEFT JOIN FETCH d.lastRide r\n" +
+            "LEFT JOIN FETCH r.departure rd LEFT JOIN FETCH rd.location\n" +
+            "LEFT JOIN FETCH r.arrival ra LEFT JOIN FETCH ra.location\n" +
+            "WHERE d.identifier = ?1")
+    Optional<Driver> findWithLastRideByIdentifier(String identifier);
+
+    @Query("SELECT d.identifier FROM Driver d")
+    List<String> findAllIdentifiers();
+
+    /**
+     * Finds the views of all the drivers. The columns are read into the
+     * views so that the drivers are not managed by the persistence context.
+     */
+    @Query("SELECT new journal.de.bord.api.drivers.DriverView(d.identifier, d.objective) FROM Driver d")
+    List<DriverView> findAllViews();
+
+    @Query("SELECT d.identifier FROM Driver d\n" +
+            "WHERE d.lastRide IS NULL AND EXISTS (SELECT r FROM Ride r WHERE r.driver = d)")
+    List<String> findIdentifiersWithoutLastRide();
+
     @Query("SELECT COUNT(r) FROM Ride r WHERE r.driver.identifier = ?1")
     Long countDriverRides(String identifier);
 
     @Query("SELECT COUNT(l) FROM Location l WHERE l.driver.identifier = ?1")
     Long countDriverLocations(String identifier);
 
-    @Query(
-        value = "SELECT SUM(a.odometer_value - d.odometer_value)\n" +
-                "FROM RIDE r\n" +
-                "     JOIN STOP d ON d.id = r.departure_id\n" +
-                "     JOIN STOP a ON a.id = r.arrival_id\n" +
-                "WHERE r.driver_identifier like ?1",
-        nativeQuery = true
-    )
+    /*
+     * The distances are summed from the ride (driver_identifier,
+     * departure_moment, distance) index, without reading the rides rows.
+     */
+
+    @Query("SELECT SUM(r.storedDistance) FROM Ride r WHERE r.driver.identifier = ?1")
     Long sumDriverRidesDistances(String identifier);
 
+    @Query("SELECT SUM(r.storedDistance) FROM Ride r WHERE r.driver.identifier = ?1\n" +
+            "AND r.storedDepartureMoment >= ?2 AND r.storedDepartureMoment < ?3")
+    Long sumDriverRidesDistancesBetween(String identifier, LocalDateTime from, LocalDateTime to);
+
 }
@@ -1,9 +1,19 @@
 package journal.de.bord.api.drivers;
 
+import journal.de.bord.api.rides.Ride;
+import journal.de.bord.api.rides.RideRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
 
@@ -13,6 +23,18 @@ public class DriverService {
     @Autowired
     DriverRepository driverRepository;
 
+    @Autowired
+    DriverStatisticsService statisticsService;
+
+    @Autowired
+    DriverTrafficService trafficService;
+
+    @Autowired
+    RideRepository rideRepository;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
     /**
      * Tells if the given identifier is the one of a driver.
      *
@@ -20,32 +42,79 @@ public class DriverService {
      * @return true if the identifier exists.
      * @throws NullPointerException when the identifier argument is null.
      */
+    @Transactional(readOnly = true)
     public Boolean exist(String identifier) {
         Objects.requireNonNull(identifier, "\"identifier\" argument is null");
         return driverRepository.existsById(identifier);
     }
 
-    private Long countDriverRides(String identifier) {
-        return driverRepository.countDriverRides(identifier);
+    /**
+     * Gets the statistics of the specified driver. The transaction is not
+     * read-only since the statistics that have not been recorded yet are
+     * rebuilt and saved.
+     *
+     * @param identifier is the identifier of the driver.
+     * @return the driver statistics.
+     * @throws NullPointerException when the identifier argument is null.
+     * @throws IllegalArgumentException when the specified driver does not
+     * exist.
+     */
+    @Transactional
+    public DriverStatistics getDriverStatistics(String identifier) {
+        return statisticsService.findByDriverIdentifier(identifier);
     }
 
-    private Long countDriverLocations(String identifier) {
-        return driverRepository.countDriverLocations(identifier);
+    /**
+     * Gets the number of rides and the distance driven by the specified
+     * driver between two moments. The transaction is not read-only since the
+     * statistics of a driver whose rides have not all been measured are
+     * rebuilt first.
+     *
+     * @param identifier is the identifier of the driver.
+     * @param from is the start of the period, included.
+     * @param to is the end of the period, excluded.
+     * @return the statistics of the period.
+     * @throws NullPointerException when one of the arguments is null.
+     * @throws IllegalArgumentException when the specified driver does not
+     * exist.
+     * @throws IllegalStateException when the period ends before it starts.
+     */
+    @Transactional
+    public DriverPeriodStatistics getDriverStatistics(String identifier, LocalDateTime from, LocalDateTime to) {
+        return statisticsService.findByDriverIdentifierBetween(identifier, from, to);
     }
 
-    private Long sumDriverRidesDistances(String identifier) {
-        return driverRepository.sumDriverRidesDistances(identifier);
+    /**
+     * Gets the statistics of the specified driver for each period of a range,
+     * in a transaction that may rebuild them like the period statistics.
+     *
+     * @param identifier is the identifier of the driver.
+     * @param granularity is the length of the periods.
+     * @param from is the first day of the range, included.
+     * @param to is the last day of the range, excluded.
+     * @return the time series of the range.
+     * @throws NullPointerException when one of the arguments is null.
+     * @throws IllegalArgumentException when the specified driver does not
+     * exist.
+     * @throws IllegalStateException when the range ends before it starts.
+     */
+    @Transactional
+    public DriverTimeSeries getDriverTimeSeries(String identifier, Granularity granularity, LocalDate from, LocalDate to) {
+        return statisticsService.findTimeSeries(identifier, granularity, from, to);
     }
 
-    public DriverStatistics getDriverStatistics(String identifier) {
-        if (exist(identifier)) {
-            Long rides = countDriverRides(identifier);
-            Long locations = countDriverLocations(identifier);
-            Long totalDistance = sumDriverRidesDistances(identifier);
-            return new DriverStatistics(rides, locations, totalDistance);
-        } else {
-            throw new IllegalArgumentException("Unknown driver: " + identifier);
-        }
+    /**
+     * Gets the rides of the specified driver by hour of the week. A cached
+     * matrix is returned without starting a transaction.
+     *
+     * @param identifier is the identifier of the driver.
+     * @return the traffic matrix of the driver.
+     * @throws NullPointerException when the identifier argument is null.
+     * @throws IllegalArgumentException when the specified driver does not
+     * exist.
+     */
+    public DriverTrafficMatrix getDriverTrafficMatrix(String identifier) {
+        return trafficService.findByDriverIdentifier(identifier);
     }
 
     /**
@@ -57,6 +126,7 @@ public class DriverService {
      * @throws IllegalArgumentException when the specified driver does not
      * exist.
      */
+    @Transactional(readOnly = true)
     public Driver findById(String identifier) {
         Objects.requireNonNull(identifier, "\"identifier\" argument is null");
         Optional<Driver> driver = driverRepository.findById(identifier);
@@ -64,12 +134,28 @@ public class DriverService {
     }
 
     /**
-     * Finds all the drivers.
+     * Gets a reference to the specified driver without loading it. The driver
+     * is loaded when one of its properties, other than its identifier, is
+     * read. It should only be used for a driver known to exist.
      *
-     * @return the list of drivers.
+     * @param identifier is the identifier of the driver.
+     * @return the driver reference.
+     * @throws NullPointerException when the identifier argument is null.
      */
-    public Iterable<Driver> findAll() {
-        return driverRepository.findAll();
+    public Driver getReference(String identifier) {
+        Objects.requireNonNull(identifier, "\"identifier\" argument is null");
+        return entityManager.getReference(Driver.class, identifier);
+    }
+
+    /**
+     * Finds all the drivers. They are read directly into views so that the
+     * drivers are not managed.
+     *
+     * @return the views of the drivers.
+     */
+    @Transactional(readOnly = true)
+    public List<DriverView> findAllViews() {
+        return driverRepository.findAllViews();
     }
 
     /**
@@ -80,6 +166,7 @@ public class DriverService {
      * @throws IllegalStateException when the driver's identifier is
      * already used.
      */
+    @Transactional
     public void create(DriverDto data) {
         Objects.requireNonNull(data, "\"data\" argument is null");
         if (driverRepository.existsById(data.getIdentifier())) {
@@ -90,6 +177,7 @@ public class DriverService {
         } else {
             Driver driver = new Driver(data.getIdentifier(), data.getObjective());
             driverRepository.save(driver);
+            statisticsService.initialize(driver.getIdentifier());
         }
     }
 
@@ -99,6 +187,7 @@ public class DriverService {
      * @param data is the driver to update.
      * @throws NullPointerException when the identifier argument is null.
      */
+    @Transactional
     public void update(DriverDto data) {
         Objects.requireNonNull(data, "\"data\" argument is null");
         try {
@@ -117,6 +206,7 @@ public class DriverService {
      * @param identifier is the id of the driver to delete.
      * @throws NullPointerException when the identifier argument is null.
      */
+    @Transactional
     public void deleteById(String identifier) {
         Objects.requireNonNull(identifier, "\"identifier\" argument is null");
         if (!exist(identifier)) {
@@ -124,5 +214,76 @@ public class DriverService {
             throw new IllegalArgumentException(msg);
         }
         driverRepository.deleteById(identifier);
+        statisticsService.remove(identifier);
     }
+
+    /**
+     * Updates the last ride of the ride's driver after the ride has been
+     * saved. A new ride, or a ride moved after the last one, becomes the last
+     * ride. When the last ride itself is edited it is searched again as it
+     * may depart before another ride now.
+     *
+     * @param ride is the saved ride.
+     * @param created tells if the ride has just been created.
+     * @throws NullPointerException when the ride argument is null.
+     */
+    @Transactional
+    public void rideSaved(Ride ride, boolean created) {
+        Objects.requireNonNull(ride, "\"ride\" argument is null");
+        String identifier = ride.getDriver().getIdentifier();
+        Driver driver = driverRepository.findWithLastRideByIdentifier(identifier)
+                .orElseThrow(IllegalArgumentException::new);
+        if (!created && driver.getLastRide().filter(ride::equals).isPresent()) {
+            driver.setLastRide(findLatestRide(identifier, null));
+        } else {
+            driver.recordRide(ride);
+        }
+    }
+
+    /**
+     * Updates the last ride of the ride's driver before the ride is deleted.
+     * When the ride is the driver's last ride, the ride departing just before
+     * it becomes the last one.
+     *
+     * @param ride is the ride to delete.
+     * @throws NullPointerException when the ride argument is null.
+     */
+    @Transactional
+    public void rideDeleted(Ride ride) {
+        Objects.requireNonNull(ride, "\"ride\" argument is null");
+        String identifier = ride.getDriver().getIdentifier();
+        Driver driver = findById(identifier);
+        if (driver.getLastRide().filter(ride::equals).isPresent()) {
+            driver.setLastRide(findLatestRide(identifier, ride));
+        }
+    }
+
+    /**
+     * Searches the last ride of the specified driver again. It is used after
+     * the rides have been written without going through {@link #rideSaved}.
+     *
+     * @param identifier is the identifier of the driver.
+     * @throws NullPointerException when the identifier argument is null.
+     * @throws IllegalArgumentException when the specified driver does not
+     * exist.
+     */
+    @Transactional
+    public void refreshLastRide(String identifier) {
+        findById(identifier).setLastRide(findLatestRide(identifier, null));
+    }
+
+    /**
+     * Finds the driver's ride with the latest departure, other than the given
+     * excluded ride. It reads at most two rides from the ride (driver,
+     * departure moment, id) cumulative index, so that it relies on the
+     * departure moments stored when the rides are measured.
+     */
+    private Ride findLatestRide(String identifier, Ride excluded) {
+        return rideRepository.findLatestByDriverIdentifier(identifier, PageRequest.of(0, 2))
+                .stream()
+                .filter(ride -> !ride.equals(excluded))
+                .findFirst()
+                .orElse(null);
+    }
+
 }
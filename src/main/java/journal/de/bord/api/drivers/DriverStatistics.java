@@ -1,14 +1,34 @@
 package journal.de.bord.api.drivers;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.NoArgsConstructor;
 
+import javax.persistence.Entity;
+import javax.persistence.Id;
 import javax.validation.constraints.PositiveOrZero;
 
+/**
+ * Holds the statistics of a driver. The values are maintained each time a
+ * ride or a location is written so that reading them is a single primary key
+ * lookup. They can be recomputed from the rides and locations tables with
+ * {@link DriverStatisticsService#rebuild(String)}.
+ */
+@Entity
 @Data
+@NoArgsConstructor
 @AllArgsConstructor
 public class DriverStatistics {
 
+    public static DriverStatistics empty(String driverIdentifier) {
+        return new DriverStatistics(driverIdentifier, 0L, 0L, 0L);
+    }
+
+    @Id
+    @JsonIgnore
+    private String driverIdentifier;
+
     @PositiveOrZero
     private Long rides;
 
@@ -18,4 +38,4 @@ public class DriverStatistics {
     @PositiveOrZero
     private Long totalDistance;
 
-}
\ No newline at end of file
+}
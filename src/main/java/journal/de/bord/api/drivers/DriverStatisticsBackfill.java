@@ -0,0 +1,56 @@
+package journal.de.bord.api.drivers;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Measures the rides saved before their departure moment and cumulative
+ * values were stored when the application starts. The rides keyset and the
+ * statistics read these columns, so that the drivers are measured once the
+ * beans are created and before the web server accepts requests. A measured
+ * driver costs two index lookups.
+ *
+ * The last ride of the drivers saved before it was recorded, and of the
+ * drivers whose rides have just been measured, is searched again once the
+ * departure moments are stored.
+ */
+@Component
+public class DriverStatisticsBackfill implements SmartInitializingSingleton {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(DriverStatisticsBackfill.class);
+
+    @Autowired
+    private DriverRepository driverRepository;
+
+    @Autowired
+    private DriverStatisticsService statisticsService;
+
+    @Autowired
+    private DriverService driverService;
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        Set<String> stale = new LinkedHashSet<>(driverRepository.findIdentifiersWithoutLastRide());
+        long measured = 0;
+        for (String identifier : driverRepository.findAllIdentifiers()) {
+            if (statisticsService.measureIfNeeded(identifier)) {
+                stale.add(identifier);
+                measured++;
+            }
+        }
+        for (String identifier : stale) {
+            driverService.refreshLastRide(identifier);
+        }
+        if (measured > 0 || !stale.isEmpty()) {
+            LOGGER.info("Measured the rides of {} drivers, refreshed the last ride of {} drivers.",
+                    measured, stale.size());
+        }
+    }
+
+}
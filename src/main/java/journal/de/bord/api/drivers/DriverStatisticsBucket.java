@@ -0,0 +1,66 @@
+package journal.de.bord.api.drivers;
+
+import journal.de.bord.api.rides.TrafficCondition;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+import javax.validation.constraints.PositiveOrZero;
+import java.io.Serializable;
+import java.time.LocalDate;
+
+/**
+ * Holds the number of rides and the distance of a driver for one period and
+ * one traffic condition. The buckets of each granularity are maintained each
+ * time a ride is written or imported so that a chart is read from a range of
+ * the primary key. They are recomputed with the other statistics by
+ * {@link DriverStatisticsService#rebuild(String)}.
+ */
+@Entity
+@IdClass(DriverStatisticsBucket.Key.class)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DriverStatisticsBucket {
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+
+        private String driverIdentifier;
+
+        private Granularity granularity;
+
+        private LocalDate start;
+
+        private TrafficCondition trafficCondition;
+
+    }
+
+    @Id
+    private String driverIdentifier;
+
+    @Id
+    @Enumerated(EnumType.STRING)
+    private Granularity granularity;
+
+    /**
+     * Is the first day of the period.
+     */
+    @Id
+    @Column(name = "period_start")
+    private LocalDate start;
+
+    @Id
+    @Enumerated(EnumType.ORDINAL)
+    private TrafficCondition trafficCondition;
+
+    @PositiveOrZero
+    private Long rides;
+
+    @PositiveOrZero
+    private Long distance;
+
+}
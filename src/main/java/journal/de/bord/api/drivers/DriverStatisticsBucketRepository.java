@@ -0,0 +1,72 @@
+package journal.de.bord.api.drivers;
+
+import journal.de.bord.api.rides.TrafficCondition;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public interface DriverStatisticsBucketRepository
+        extends CrudRepository<DriverStatisticsBucket, DriverStatisticsBucket.Key> {
+
+    /*
+     * A ride is accounted for in the day, the week and the month buckets of
+     * its departure. The three buckets are updated in place by a single
+     * statement, which tells how many of them already exist.
+     */
+
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE DriverStatisticsBucket b\n" +
+            "SET b.rides = b.rides + ?6, b.distance = b.distance + ?7\n" +
+            "WHERE b.driverIdentifier = ?1 AND b.trafficCondition = ?2\n" +
+            "AND ((b.granularity = journal.de.bord.api.drivers.Granularity.DAY AND b.start = ?3)\n" +
+            "OR (b.granularity = journal.de.bord.api.drivers.Granularity.WEEK AND b.start = ?4)\n" +
+            "OR (b.granularity = journal.de.bord.api.drivers.Granularity.MONTH AND b.start = ?5))")
+    int addRides(
+            String identifier,
+            TrafficCondition trafficCondition,
+            LocalDate day,
+            LocalDate week,
+            LocalDate month,
+            long rides,
+            long distance
+    );
+
+    @Query("SELECT b.granularity FROM DriverStatisticsBucket b\n" +
+            "WHERE b.driverIdentifier = ?1 AND b.trafficCondition = ?2\n" +
+            "AND ((b.granularity = journal.de.bord.api.drivers.Granularity.DAY AND b.start = ?3)\n" +
+            "OR (b.granularity = journal.de.bord.api.drivers.Granularity.WEEK AND b.start = ?4)\n" +
+            "OR (b.granularity = journal.de.bord.api.drivers.Granularity.MONTH AND b.start = ?5))")
+    List<Granularity> findGranularities(
+            String identifier,
+            TrafficCondition trafficCondition,
+            LocalDate day,
+            LocalDate week,
+            LocalDate month
+    );
+
+    /**
+     * Finds the driver's day, week and month buckets starting from the given
+     * ones, whatever their number of rides. It is used to add appended rides
+     * to the buckets of the current periods.
+     */
+    @Query("SELECT b FROM DriverStatisticsBucket b\n" +
+            "WHERE b.driverIdentifier = ?1\n" +
+            "AND ((b.granularity = journal.de.bord.api.drivers.Granularity.DAY AND b.start >= ?2)\n" +
+            "OR (b.granularity = journal.de.bord.api.drivers.Granularity.WEEK AND b.start >= ?3)\n" +
+            "OR (b.granularity = journal.de.bord.api.drivers.Granularity.MONTH AND b.start >= ?4))")
+    List<DriverStatisticsBucket> findFrom(String identifier, LocalDate day, LocalDate week, LocalDate month);
+
+    @Query("SELECT b FROM DriverStatisticsBucket b\n" +
+            "WHERE b.driverIdentifier = ?1 AND b.granularity = ?2 AND b.start >= ?3 AND b.start < ?4\n" +
+            "AND b.rides > 0\n" +
+            "ORDER BY b.start ASC")
+    List<DriverStatisticsBucket> findBetween(String identifier, Granularity granularity, LocalDate from, LocalDate to);
+
+    @Modifying
+    @Query("DELETE FROM DriverStatisticsBucket b WHERE b.driverIdentifier = ?1")
+    int deleteByDriverIdentifier(String identifier);
+
+}
@@ -0,0 +1,47 @@
+package journal.de.bord.api.drivers;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+
+/**
+ * Recomputes the rides measures and cumulative values, the statistics and
+ * the last ride of every driver from the base tables when the application is
+ * started with the {@code --rebuild-statistics} option. This is used to repair them after the
+ * rides or the locations have been written without going through the
+ * services.
+ */
+@Component
+public class DriverStatisticsRebuilder implements ApplicationRunner {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(DriverStatisticsRebuilder.class);
+
+    private static final String OPTION = "rebuild-statistics";
+
+    @Autowired
+    private DriverRepository driverRepository;
+
+    @Autowired
+    private DriverStatisticsService statisticsService;
+
+    @Autowired
+    private DriverService driverService;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (args.containsOption(OPTION)) {
+            long rebuilt = 0;
+            for (String identifier : driverRepository.findAllIdentifiers()) {
+                statisticsService.measureRides(identifier);
+                statisticsService.rebuild(identifier);
+                driverService.refreshLastRide(identifier);
+                rebuilt++;
+            }
+            LOGGER.info("Rebuilt the statistics of {} drivers.", rebuilt);
+        }
+    }
+
+}
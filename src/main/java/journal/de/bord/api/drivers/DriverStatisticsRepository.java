@@ -0,0 +1,44 @@
+package journal.de.bord.api.drivers;
+
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+
+import javax.persistence.LockModeType;
+import java.util.Optional;
+
+public interface DriverStatisticsRepository extends CrudRepository<DriverStatistics, String> {
+
+    /*
+     * The updates are made in place so that concurrent writes for the same
+     * driver do not overwrite each other. Pending changes are flushed first so
+     * that constraint violations are raised before the statistics change.
+     */
+
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE DriverStatistics s\n" +
+            "SET s.rides = s.rides + ?2, s.totalDistance = s.totalDistance + ?3\n" +
+            "WHERE s.driverIdentifier = ?1")
+    int addRides(String identifier, long rides, long distance);
+
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE DriverStatistics s SET s.locations = s.locations + ?2 WHERE s.driverIdentifier = ?1")
+    int addLocations(String identifier, long locations);
+
+    /*
+     * The statistics row of a driver is locked until the end of the transaction
+     * before its rides are changed, so that the changes of the rides of a
+     * driver, which read its cumulative values and buckets before writing
+     * them, are made one at a time.
+     */
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM DriverStatistics s WHERE s.driverIdentifier = ?1")
+    Optional<DriverStatistics> findForUpdate(String identifier);
+
+    @Modifying
+    @Query("DELETE FROM DriverStatistics s WHERE s.driverIdentifier = ?1")
+    int deleteByDriverIdentifier(String identifier);
+
+}
@@ -0,0 +1,571 @@
+package journal.de.bord.api.drivers;
+
+import journal.de.bord.api.rides.Ride;
+import journal.de.bord.api.rides.RideMeasure;
+import journal.de.bord.api.rides.RidePrefix;
+import journal.de.bord.api.rides.RideRepository;
+import journal.de.bord.api.rides.TrafficCondition;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.stream.Stream;
+
+/**
+ * Maintains the statistics of the drivers. The writing services notify this
+ * service of each change made to the rides and the locations, within their own
+ * transaction, so that the statistics stay consistent with the base tables.
+ * The traffic matrices computed from the rides are evicted on each change.
+ */
+@Service
+public class DriverStatisticsService {
+
+    private static final int MEASURE_PAGE_SIZE = 500;
+
+    @Autowired
+    private DriverRepository driverRepository;
+
+    @Autowired
+    private DriverStatisticsRepository statisticsRepository;
+
+    @Autowired
+    private RideRepository rideRepository;
+
+    @Autowired
+    private DriverStatisticsBucketRepository bucketRepository;
+
+    @Autowired
+    private DriverTrafficService trafficService;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * Finds the statistics of the specified driver. The statistics are
+     * rebuilt when they have not been recorded yet.
+     *
+     * @param identifier is the identifier of the driver.
+     * @return the driver statistics.
+     * @throws NullPointerException when the identifier argument is null.
+     * @throws IllegalArgumentException when the driver does not exist.
+     */
+    @Transactional
+    public DriverStatistics findByDriverIdentifier(String identifier) {
+        Objects.requireNonNull(identifier, "\"identifier\" argument is null");
+        Optional<DriverStatistics> statistics = statisticsRepository.findById(identifier);
+        if (statistics.isPresent()) {
+            return statistics.get();
+        } else if (driverRepository.existsById(identifier)) {
+            return rebuild(identifier);
+        } else {
+            throw new IllegalArgumentException("Unknown driver: " + identifier);
+        }
+    }
+
+    /**
+     * Finds the number of rides and the distance driven by the specified
+     * driver during a period. They are the difference between the cumulative
+     * values of the last ride departed before the end of the period and of
+     * the last ride departed before its start, so that any period is read
+     * with two index lookups. The driver's objective is returned with them.
+     * The statistics are rebuilt first when the driver's rides have not all
+     * been measured.
+     *
+     * @param identifier is the identifier of the driver.
+     * @param from is the start of the period, included.
+     * @param to is the end of the period, excluded.
+     * @return the statistics of the period.
+     * @throws NullPointerException when one of the arguments is null.
+     * @throws IllegalArgumentException when the driver does not exist.
+     * @throws IllegalStateException when the period ends before it starts.
+     */
+    @Transactional
+    public DriverPeriodStatistics findByDriverIdentifierBetween(String identifier, LocalDateTime from, LocalDateTime to) {
+        Objects.requireNonNull(identifier, "\"identifier\" argument is null");
+        Objects.requireNonNull(from, "\"from\" argument is null");
+        Objects.requireNonNull(to, "\"to\" argument is null");
+        if (to.isBefore(from)) {
+            throw new IllegalStateException("The period ends before it starts.");
+        }
+        Driver driver = driverRepository.findById(identifier)
+                .orElseThrow(() -> new IllegalArgumentException("Unknown driver: " + identifier));
+        measureIfNeeded(identifier);
+        RidePrefix start = findPrefixBefore(identifier, from, Long.MIN_VALUE);
+        RidePrefix end = findPrefixBefore(identifier, to, Long.MIN_VALUE);
+        return new DriverPeriodStatistics(
+                from,
+                to,
+                end.getRides() - start.getRides(),
+                end.getDistance() - start.getDistance(),
+                driver.getObjective()
+        );
+    }
+
+    /**
+     * Finds the number of rides, the distance and the traffic conditions of
+     * the specified driver for each period of a range. They are read from the
+     * buckets of the granularity, the range is extended to the start of its
+     * first period. The statistics are rebuilt first when the driver's rides
+     * have not all been measured.
+     *
+     * @param identifier is the identifier of the driver.
+     * @param granularity is the length of the periods.
+     * @param from is the first day of the range, included.
+     * @param to is the last day of the range, excluded.
+     * @return the time series of the range.
+     * @throws NullPointerException when one of the arguments is null.
+     * @throws IllegalArgumentException when the driver does not exist.
+     * @throws IllegalStateException when the range ends before it starts.
+     */
+    @Transactional
+    public DriverTimeSeries findTimeSeries(String identifier, Granularity granularity, LocalDate from, LocalDate to) {
+        Objects.requireNonNull(identifier, "\"identifier\" argument is null");
+        Objects.requireNonNull(granularity, "\"granularity\" argument is null");
+        Objects.requireNonNull(from, "\"from\" argument is null");
+        Objects.requireNonNull(to, "\"to\" argument is null");
+        if (to.isBefore(from)) {
+            throw new IllegalStateException("The range ends before it starts.");
+        }
+        if (!driverRepository.existsById(identifier)) {
+            throw new IllegalArgumentException("Unknown driver: " + identifier);
+        }
+        measureIfNeeded(identifier);
+        LocalDate start = granularity.start(from);
+        List<DriverTimeSeries.Bucket> series = new ArrayList<>();
+        List<DriverStatisticsBucket> buckets = bucketRepository.findBetween(identifier, granularity, start, to);
+        int i = 0;
+        while (i < buckets.size()) {
+            LocalDate period = buckets.get(i).getStart();
+            long rides = 0;
+            long distance = 0;
+            Map<TrafficCondition, Long> trafficConditions = new EnumMap<>(TrafficCondition.class);
+            for (; i < buckets.size() && buckets.get(i).getStart().equals(period); i++) {
+                DriverStatisticsBucket bucket = buckets.get(i);
+                rides += bucket.getRides();
+                distance += bucket.getDistance();
+                trafficConditions.put(bucket.getTrafficCondition(), bucket.getRides());
+            }
+            series.add(new DriverTimeSeries.Bucket(period, rides, distance, trafficConditions));
+        }
+        return new DriverTimeSeries(granularity, start, to, series);
+    }
+
+    /**
+     * Records empty statistics for a new driver.
+     *
+     * @param identifier is the identifier of the new driver.
+     */
+    @Transactional
+    public void initialize(String identifier) {
+        Objects.requireNonNull(identifier, "\"identifier\" argument is null");
+        statisticsRepository.save(DriverStatistics.empty(identifier));
+    }
+
+    /**
+     * Removes the statistics of a deleted driver.
+     *
+     * @param identifier is the identifier of the deleted driver.
+     */
+    @Transactional
+    public void remove(String identifier) {
+        Objects.requireNonNull(identifier, "\"identifier\" argument is null");
+        statisticsRepository.deleteByDriverIdentifier(identifier);
+        bucketRepository.deleteByDriverIdentifier(identifier);
+        trafficService.evict(identifier);
+    }
+
+    /**
+     * Accounts for a ride that has been created or edited. The ride distance
+     * that was previously accounted for is replaced by its current distance.
+     * The ride is moved to its departure moment in the cumulative values of
+     * the driver's rides. The ride should be measured. The driver's
+     * statistics are locked first, the changes of the rides of a driver are
+     * accounted for one at a time.
+     * <p>
+     * The cumulative values of every ride departed after the saved one are
+     * shifted, with a single update statement. Appending a ride only writes
+     * the ride itself, but saving a ride departed in the past writes all the
+     * later rides of the driver, which is linear in their number.
+     *
+     * @param ride is the saved ride.
+     * @param created tells if the ride has just been created.
+     */
+    @Transactional
+    public void rideSaved(Ride ride, boolean created) {
+        Objects.requireNonNull(ride, "\"ride\" argument is null");
+        lock(ride.getDriver().getIdentifier());
+        long distance = ride.getDistance();
+        long recorded = ride.getRecordedDistance() == null ? 0L : ride.getRecordedDistance();
+        if (created || distance != recorded) {
+            statisticsRepository.addRides(
+                    ride.getDriver().getIdentifier(),
+                    created ? 1L : 0L,
+                    distance - recorded
+            );
+        }
+        updateBuckets(ride, created, recorded);
+        updatePrefixes(ride, created, recorded);
+        ride.setRecordedDistance(distance);
+        ride.setRecordedDepartureMoment(ride.getStoredDepartureMoment());
+        ride.setRecordedTrafficCondition(ride.getTrafficCondition());
+        trafficService.evict(ride.getDriver().getIdentifier());
+    }
+
+    /**
+     * Removes a deleted ride from its driver statistics. The driver's
+     * statistics are locked first and the cumulative values of the rides
+     * departed after the deleted one are shifted, as when a ride is saved.
+     *
+     * @param ride is the deleted ride.
+     */
+    @Transactional
+    public void rideDeleted(Ride ride) {
+        Objects.requireNonNull(ride, "\"ride\" argument is null");
+        lock(ride.getDriver().getIdentifier());
+        long recorded = ride.getRecordedDistance() == null ? 0L : ride.getRecordedDistance();
+        statisticsRepository.addRides(ride.getDriver().getIdentifier(), -1L, -recorded);
+        if (ride.getRecordedDepartureMoment() != null && ride.getRecordedTrafficCondition() != null) {
+            addToBuckets(
+                    ride.getDriver().getIdentifier(),
+                    ride.getRecordedTrafficCondition(),
+                    ride.getRecordedDepartureMoment(),
+                    -1L,
+                    -recorded
+            );
+        }
+        if (ride.getRecordedDepartureMoment() != null) {
+            rideRepository.shiftPrefixesAfter(
+                    ride.getDriver().getIdentifier(),
+                    ride.getRecordedDepartureMoment(),
+                    ride.getId(),
+                    -1L,
+                    -recorded
+            );
+        }
+        trafficService.evict(ride.getDriver().getIdentifier());
+    }
+
+    @Transactional
+    public void locationCreated(String identifier) {
+        statisticsRepository.addLocations(identifier, 1L);
+    }
+
+    @Transactional
+    public void locationDeleted(String identifier) {
+        statisticsRepository.addLocations(identifier, -1L);
+    }
+
+    /**
+     * Accounts for the locations and the rides imported for the specified
+     * driver, within the transaction saving them. The imported rides depart
+     * after the driver's other rides and carry their cumulative values, so
+     * that only their sums are added to the statistics. Their buckets are
+     * summed in memory, the existing buckets from the first imported day on
+     * are read with a single statement and the others are inserted. This is
+     * linear in the number of imported rides and does not read the driver's
+     * history. The driver's statistics are locked first, as when a ride is
+     * saved.
+     *
+     * @param identifier is the identifier of the driver.
+     * @param locations is the number of imported locations.
+     * @param rides are the imported rides, measured.
+     * @throws NullPointerException when one of the arguments is null.
+     */
+    @Transactional
+    public void recordImported(String identifier, long locations, List<Ride> rides) {
+        Objects.requireNonNull(identifier, "\"identifier\" argument is null");
+        Objects.requireNonNull(rides, "\"rides\" argument is null");
+        if (locations == 0 && rides.isEmpty()) {
+            return;
+        }
+        lock(identifier);
+        if (locations != 0) {
+            statisticsRepository.addLocations(identifier, locations);
+        }
+        if (rides.isEmpty()) {
+            return;
+        }
+        Map<DriverStatisticsBucket.Key, DriverStatisticsBucket> buckets = new HashMap<>();
+        LocalDate first = rides.get(0).getStoredDepartureMoment().toLocalDate();
+        long distance = 0;
+        for (Ride ride : rides) {
+            distance += ride.getStoredDistance();
+            LocalDate date = ride.getStoredDepartureMoment().toLocalDate();
+            first = date.isBefore(first) ? date : first;
+            accumulate(buckets, identifier, ride.getTrafficCondition(), date, ride.getStoredDistance());
+        }
+        statisticsRepository.addRides(identifier, rides.size(), distance);
+        List<DriverStatisticsBucket> existing = bucketRepository.findFrom(
+                identifier,
+                Granularity.DAY.start(first),
+                Granularity.WEEK.start(first),
+                Granularity.MONTH.start(first)
+        );
+        for (DriverStatisticsBucket bucket : existing) {
+            DriverStatisticsBucket added = buckets.remove(new DriverStatisticsBucket.Key(
+                    identifier, bucket.getGranularity(), bucket.getStart(), bucket.getTrafficCondition()
+            ));
+            if (added != null) {
+                bucket.setRides(bucket.getRides() + added.getRides());
+                bucket.setDistance(bucket.getDistance() + added.getDistance());
+            }
+        }
+        buckets.values().forEach(entityManager::persist);
+        trafficService.evict(identifier);
+    }
+
+    /**
+     * Recomputes the statistics of the specified driver from the rides and
+     * locations tables. The rides saved before their measures and cumulative
+     * values were stored are measured first. The driver's statistics are
+     * locked first so that no ride is accounted for while they are rebuilt.
+     *
+     * @param identifier is the identifier of the driver.
+     * @return the recomputed statistics.
+     */
+    @Transactional
+    public DriverStatistics rebuild(String identifier) {
+        Objects.requireNonNull(identifier, "\"identifier\" argument is null");
+        lock(identifier);
+        if (rideRepository.existsByDriverIdentifierAndCumulativeRidesIsNull(identifier)) {
+            measureRides(identifier);
+        }
+        Long distance = driverRepository.sumDriverRidesDistances(identifier);
+        DriverStatistics statistics = new DriverStatistics(
+                identifier,
+                driverRepository.countDriverRides(identifier),
+                driverRepository.countDriverLocations(identifier),
+                distance == null ? 0L : distance
+        );
+        rebuildBuckets(identifier);
+        trafficService.evict(identifier);
+        return statisticsRepository.save(statistics);
+    }
+
+    /**
+     * Stores the measures and the cumulative values of all the specified
+     * driver's rides again. The rides are read and written by pages, in
+     * departure order, so that the history is not held in memory. It is used
+     * to fill the values of the rides saved before they were stored.
+     *
+     * @param identifier is the identifier of the driver.
+     * @throws NullPointerException when the identifier argument is null.
+     */
+    @Transactional
+    public void measureRides(String identifier) {
+        Objects.requireNonNull(identifier, "\"identifier\" argument is null");
+        Pageable pageable = PageRequest.of(0, MEASURE_PAGE_SIZE, Sort.by("departure.moment", "id"));
+        long rides = 0;
+        long distance = 0;
+        Page<Ride> page;
+        do {
+            page = rideRepository.findByDriverIdentifier(identifier, pageable);
+            for (Ride ride : page) {
+                ride.measure();
+                rides++;
+                distance += ride.getStoredDistance();
+                ride.setCumulativeRides(rides);
+                ride.setCumulativeDistance(distance);
+            }
+            entityManager.flush();
+            entityManager.clear();
+            pageable = page.nextPageable();
+        } while (page.hasNext());
+    }
+
+    /**
+     * Rebuilds the statistics of the specified driver when some of its rides
+     * have not been measured. The last ride of a measured driver counts all
+     * of its rides. The rides saved before their measures were stored are
+     * either left out of the cumulative values or have none, so that the
+     * last ride count differs from the recorded one. This costs two index
+     * lookups.
+     *
+     * @param identifier is the identifier of the driver.
+     * @return true if the statistics of the driver have been rebuilt.
+     * @throws NullPointerException when the identifier is null.
+     */
+    @Transactional
+    public boolean measureIfNeeded(String identifier) {
+        Objects.requireNonNull(identifier, "\"identifier\" argument is null");
+        Long recorded = statisticsRepository.findById(identifier).map(DriverStatistics::getRides).orElse(null);
+        RidePrefix last = rideRepository.findLatestPrefixes(identifier, PageRequest.of(0, 1))
+                .stream()
+                .findFirst()
+                .orElse(RidePrefix.ZERO);
+        if (recorded == null || !recorded.equals(last.getRides())) {
+            rebuild(identifier);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Locks the statistics of the specified driver until the end of the
+     * transaction. The drivers whose statistics have not been recorded yet
+     * have nothing to lock, their statistics are rebuilt when they are read.
+     */
+    private void lock(String identifier) {
+        statisticsRepository.findForUpdate(identifier);
+    }
+
+    /**
+     * Recomputes the statistics buckets of the driver with a single pass over
+     * the measures of its rides.
+     */
+    private void rebuildBuckets(String identifier) {
+        bucketRepository.deleteByDriverIdentifier(identifier);
+        Map<DriverStatisticsBucket.Key, DriverStatisticsBucket> buckets = new HashMap<>();
+        try (Stream<RideMeasure> measures = rideRepository.streamMeasuresByDriverIdentifier(identifier)) {
+            measures.forEach(measure -> accumulate(
+                    buckets,
+                    identifier,
+                    measure.getTrafficCondition(),
+                    measure.getDepartureMoment().toLocalDate(),
+                    measure.getDistance()
+            ));
+        }
+        buckets.values().forEach(entityManager::persist);
+        entityManager.flush();
+    }
+
+    /**
+     * Adds a ride to the day, the week and the month buckets of its
+     * departure date, among the given buckets held in memory.
+     */
+    private static void accumulate(
+            Map<DriverStatisticsBucket.Key, DriverStatisticsBucket> buckets,
+            String identifier,
+            TrafficCondition trafficCondition,
+            LocalDate date,
+            long distance
+    ) {
+        for (Granularity granularity : Granularity.values()) {
+            DriverStatisticsBucket.Key key = new DriverStatisticsBucket.Key(
+                    identifier,
+                    granularity,
+                    granularity.start(date),
+                    trafficCondition
+            );
+            DriverStatisticsBucket bucket = buckets.computeIfAbsent(key, k -> new DriverStatisticsBucket(
+                    k.getDriverIdentifier(), k.getGranularity(), k.getStart(), k.getTrafficCondition(), 0L, 0L
+            ));
+            bucket.setRides(bucket.getRides() + 1);
+            bucket.setDistance(bucket.getDistance() + distance);
+        }
+    }
+
+    /**
+     * A ride that stays in the same day with the same traffic condition only
+     * adds its distance change to its buckets. Otherwise it is removed from
+     * its recorded buckets and added to its new ones.
+     */
+    private void updateBuckets(Ride ride, boolean created, long recorded) {
+        String driverId = ride.getDriver().getIdentifier();
+        LocalDateTime moment = ride.getStoredDepartureMoment();
+        long distance = ride.getStoredDistance();
+        LocalDateTime recordedMoment = created ? null : ride.getRecordedDepartureMoment();
+        TrafficCondition recordedCondition = ride.getRecordedTrafficCondition();
+        if (recordedMoment != null && recordedCondition != null) {
+            if (recordedMoment.toLocalDate().equals(moment.toLocalDate())
+                    && recordedCondition == ride.getTrafficCondition()) {
+                if (distance != recorded) {
+                    addToBuckets(driverId, recordedCondition, moment, 0L, distance - recorded);
+                }
+                return;
+            }
+            addToBuckets(driverId, recordedCondition, recordedMoment, -1L, -recorded);
+        }
+        addToBuckets(driverId, ride.getTrafficCondition(), moment, 1L, distance);
+    }
+
+    /**
+     * Adds rides to the day, the week and the month buckets of the given
+     * moment. The missing buckets are created when rides are added, which
+     * only happens for the first ride of a period. Finding the missing
+     * buckets then inserting them is not atomic, it relies on the lock taken
+     * on the driver's statistics by the callers: the first rides of a period
+     * written concurrently for the same driver would both insert its buckets
+     * otherwise, and the second insert would violate their primary key.
+     */
+    private void addToBuckets(
+            String driverId,
+            TrafficCondition trafficCondition,
+            LocalDateTime moment,
+            long rides,
+            long distance
+    ) {
+        LocalDate date = moment.toLocalDate();
+        LocalDate day = Granularity.DAY.start(date);
+        LocalDate week = Granularity.WEEK.start(date);
+        LocalDate month = Granularity.MONTH.start(date);
+        int updated = bucketRepository.addRides(driverId, trafficCondition, day, week, month, rides, distance);
+        if (updated == Granularity.values().length || rides <= 0) {
+            return;
+        }
+        List<Granularity> existing = updated == 0
+                ? Collections.emptyList()
+                : bucketRepository.findGranularities(driverId, trafficCondition, day, week, month);
+        for (Granularity granularity : Granularity.values()) {
+            if (!existing.contains(granularity)) {
+                entityManager.persist(new DriverStatisticsBucket(
+                        driverId, granularity, granularity.start(date), trafficCondition, rides, distance
+                ));
+            }
+        }
+    }
+
+    /**
+     * A ride that stays at the same position shifts itself and the following
+     * rides by its distance change. Otherwise it is removed from its recorded
+     * position and inserted at its new one: its cumulative values continue
+     * the ones of the ride before it and the following rides are shifted.
+     */
+    private void updatePrefixes(Ride ride, boolean created, long recorded) {
+        String driverId = ride.getDriver().getIdentifier();
+        LocalDateTime moment = ride.getStoredDepartureMoment();
+        long distance = ride.getStoredDistance();
+        LocalDateTime recordedMoment = created ? null : ride.getRecordedDepartureMoment();
+        if (moment.equals(recordedMoment)) {
+            if (distance != recorded) {
+                rideRepository.shiftPrefixesFrom(driverId, moment, ride.getId(), 0L, distance - recorded);
+            }
+            return;
+        }
+        if (recordedMoment != null) {
+            rideRepository.shiftPrefixesAfter(driverId, recordedMoment, ride.getId(), -1L, -recorded);
+        }
+        RidePrefix before = findPrefixBefore(driverId, moment, ride.getId());
+        rideRepository.setPrefix(ride.getId(), before.getRides() + 1, before.getDistance() + distance);
+        rideRepository.shiftPrefixesAfter(driverId, moment, ride.getId(), 1L, distance);
+    }
+
+    /**
+     * The rides saved before the cumulative values were stored have none
+     * until the statistics are rebuilt. They are never counted from zero,
+     * the rebuild measures them again.
+     *
+     * @throws IllegalStateException when the ride found has no cumulative
+     * values.
+     */
+    private RidePrefix findPrefixBefore(String driverId, LocalDateTime moment, Long id) {
+        RidePrefix prefix = rideRepository.findPrefixesBefore(driverId, moment, id, PageRequest.of(0, 1))
+                .stream()
+                .findFirst()
+                .orElse(RidePrefix.ZERO);
+        if (prefix.getRides() == null || prefix.getDistance() == null) {
+            throw new IllegalStateException("The rides of the driver have not been measured: " + driverId);
+        }
+        return prefix;
+    }
+
+}
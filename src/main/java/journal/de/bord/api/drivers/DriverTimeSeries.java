@@ -0,0 +1,42 @@
+package journal.de.bord.api.drivers;
+
+import journal.de.bord.api.rides.TrafficCondition;
+import lombok.Value;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Holds the number of rides and the distance of a driver for each period of a
+ * range. The periods without rides are left out.
+ */
+@Value
+public class DriverTimeSeries {
+
+    Granularity granularity;
+
+    LocalDate from;
+
+    LocalDate to;
+
+    List<Bucket> buckets;
+
+    /**
+     * Holds the rides of one period and their number for each traffic
+     * condition.
+     */
+    @Value
+    public static class Bucket {
+
+        LocalDate start;
+
+        Long rides;
+
+        Long distance;
+
+        Map<TrafficCondition, Long> trafficConditions;
+
+    }
+
+}
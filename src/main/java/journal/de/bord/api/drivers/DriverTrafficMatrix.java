@@ -0,0 +1,48 @@
+package journal.de.bord.api.drivers;
+
+import journal.de.bord.api.rides.TrafficCondition;
+import lombok.Value;
+
+import java.time.DayOfWeek;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Holds the rides of a driver by hour of the week of their departure. There
+ * are 7 days from Monday to Sunday, each of 24 hours.
+ */
+@Value
+public class DriverTrafficMatrix {
+
+    List<Day> days;
+
+    @Value
+    public static class Day {
+
+        DayOfWeek day;
+
+        List<Hour> hours;
+
+    }
+
+    /**
+     * Holds the number of rides departed during one hour of the week, their
+     * number for each traffic condition and their mean duration in seconds
+     * and distance. The means are null when there is no ride.
+     */
+    @Value
+    public static class Hour {
+
+        int hour;
+
+        long rides;
+
+        Map<TrafficCondition, Long> trafficConditions;
+
+        Double meanDuration;
+
+        Double meanDistance;
+
+    }
+
+}
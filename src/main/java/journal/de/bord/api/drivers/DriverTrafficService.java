@@ -0,0 +1,131 @@
+package journal.de.bord.api.drivers;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import journal.de.bord.api.rides.RideMeasure;
+import journal.de.bord.api.rides.RideRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PostConstruct;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Computes the traffic matrices of the drivers with a single pass over the
+ * stored measures of their rides. The matrices are kept until the rides of
+ * their driver change, the least recently used ones are evicted when the
+ * cache is full.
+ */
+@Service
+public class DriverTrafficService {
+
+    @Autowired
+    private DriverRepository driverRepository;
+
+    @Autowired
+    private RideRepository rideRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${statistics.traffic.cache-size:1000}")
+    private int cacheSize;
+
+    private Map<String, DriverTrafficMatrix> matrices;
+
+    private Counter hits;
+
+    private Counter misses;
+
+    /**
+     * Is incremented each time a matrix is evicted. A matrix is only cached
+     * when no matrix has been evicted while it was computed, so that a matrix
+     * computed from rides that were being changed is not kept.
+     */
+    private final AtomicLong evictions = new AtomicLong();
+
+    @PostConstruct
+    private void createCache() {
+        matrices = new LinkedHashMap<String, DriverTrafficMatrix>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, DriverTrafficMatrix> eldest) {
+                return size() > cacheSize;
+            }
+        };
+        hits = meterRegistry.counter("journal.traffic.cache", "result", "hit");
+        misses = meterRegistry.counter("journal.traffic.cache", "result", "miss");
+    }
+
+    /**
+     * Finds the traffic matrix of the specified driver.
+     *
+     * @param identifier is the identifier of the driver.
+     * @return the rides of the driver by hour of the week.
+     * @throws NullPointerException when the identifier argument is null.
+     * @throws IllegalArgumentException when the driver does not exist.
+     */
+    @Transactional(readOnly = true)
+    public DriverTrafficMatrix findByDriverIdentifier(String identifier) {
+        Objects.requireNonNull(identifier, "\"identifier\" argument is null");
+        DriverTrafficMatrix matrix;
+        synchronized (matrices) {
+            matrix = matrices.get(identifier);
+        }
+        if (matrix != null) {
+            hits.increment();
+            return matrix;
+        }
+        misses.increment();
+        if (!driverRepository.existsById(identifier)) {
+            throw new IllegalArgumentException("Unknown driver: " + identifier);
+        }
+        long generation = evictions.get();
+        TrafficMatrixAccumulator accumulator = new TrafficMatrixAccumulator();
+        try (Stream<RideMeasure> measures = rideRepository.streamMeasuresByDriverIdentifier(identifier)) {
+            measures.forEach(accumulator::add);
+        }
+        matrix = accumulator.toMatrix();
+        synchronized (matrices) {
+            if (evictions.get() == generation) {
+                matrices.put(identifier, matrix);
+            }
+        }
+        return matrix;
+    }
+
+    /**
+     * Evicts the traffic matrix of a driver whose rides change. The matrix is
+     * evicted again when the transaction changing the rides completes, as it
+     * may have been computed from the previous rides in the meantime.
+     *
+     * @param identifier is the identifier of the driver.
+     */
+    public void evict(String identifier) {
+        Objects.requireNonNull(identifier, "\"identifier\" argument is null");
+        remove(identifier);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCompletion(int status) {
+                    remove(identifier);
+                }
+            });
+        }
+    }
+
+    private void remove(String identifier) {
+        synchronized (matrices) {
+            evictions.incrementAndGet();
+            matrices.remove(identifier);
+        }
+    }
+
+}
@@ -0,0 +1,20 @@
+package journal.de.bord.api.drivers;
+
+import lombok.Value;
+
+/**
+ * Is the read-only representation of a driver returned by the API, without
+ * its rides, stops and locations.
+ */
+@Value
+public class DriverView {
+
+    public static DriverView of(Driver driver) {
+        return new DriverView(driver.getIdentifier(), driver.getObjective());
+    }
+
+    String identifier;
+
+    Long objective;
+
+}
@@ -0,0 +1,42 @@
+package journal.de.bord.api.drivers;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
+
+/**
+ * Represents the length of the periods the driver statistics are bucketed
+ * by. The weeks start on Monday.
+ */
+public enum Granularity {
+
+    DAY {
+        @Override
+        public LocalDate start(LocalDate date) {
+            return date;
+        }
+    },
+
+    WEEK {
+        @Override
+        public LocalDate start(LocalDate date) {
+            return date.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+        }
+    },
+
+    MONTH {
+        @Override
+        public LocalDate start(LocalDate date) {
+            return date.withDayOfMonth(1);
+        }
+    };
+
+    /**
+     * Gets the first day of the period holding the given date.
+     *
+     * @param date is a date of the period.
+     * @return the first day of the period.
+     */
+    public abstract LocalDate start(LocalDate date);
+
+}
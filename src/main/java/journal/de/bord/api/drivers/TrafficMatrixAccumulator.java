@@ -0,0 +1,63 @@
+package journal.de.bord.api.drivers;
+
+import journal.de.bord.api.rides.RideMeasure;
+import journal.de.bord.api.rides.TrafficCondition;
+
+import java.time.DayOfWeek;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Counts the rides of a driver by hour of the week in arrays of primitive
+ * counters, so that the rides are added without allocating anything. The
+ * cells are indexed by the day of the week, from Monday, times 24 plus the
+ * hour of the day.
+ */
+class TrafficMatrixAccumulator {
+
+    private static final int HOURS = 24;
+    private static final int CELLS = 7 * HOURS;
+    private static final TrafficCondition[] CONDITIONS = TrafficCondition.values();
+
+    private final long[] rides = new long[CELLS];
+    private final long[] durations = new long[CELLS];
+    private final long[] distances = new long[CELLS];
+    private final long[] conditions = new long[CELLS * CONDITIONS.length];
+
+    void add(RideMeasure measure) {
+        LocalDateTime moment = measure.getDepartureMoment();
+        int cell = (moment.getDayOfWeek().getValue() - 1) * HOURS + moment.getHour();
+        rides[cell]++;
+        durations[cell] += measure.getDuration();
+        distances[cell] += measure.getDistance();
+        conditions[cell * CONDITIONS.length + measure.getTrafficCondition().ordinal()]++;
+    }
+
+    DriverTrafficMatrix toMatrix() {
+        List<DriverTrafficMatrix.Day> days = new ArrayList<>(7);
+        for (DayOfWeek day : DayOfWeek.values()) {
+            List<DriverTrafficMatrix.Hour> hours = new ArrayList<>(HOURS);
+            for (int hour = 0; hour < HOURS; hour++) {
+                int cell = (day.getValue() - 1) * HOURS + hour;
+                Map<TrafficCondition, Long> counts = new EnumMap<>(TrafficCondition.class);
+                for (TrafficCondition condition : CONDITIONS) {
+                    counts.put(condition, conditions[cell * CONDITIONS.length + condition.ordinal()]);
+                }
+                long count = rides[cell];
+                hours.add(new DriverTrafficMatrix.Hour(
+                        hour,
+                        count,
+                        counts,
+                        count == 0 ? null : (double) durations[cell] / count,
+                        count == 0 ? null : (double) distances[cell] / count
+                ));
+            }
+            days.add(new DriverTrafficMatrix.Day(day, hours));
+        }
+        return new DriverTrafficMatrix(days);
+    }
+
+}
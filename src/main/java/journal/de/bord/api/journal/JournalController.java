@@ -0,0 +1,80 @@
+package journal.de.bord.api.journal;
+
+import journal.de.bord.api.drivers.AuthenticatedDriver;
+import journal.de.bord.api.drivers.Driver;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * The controller handles the REST interface used to import and export a
+ * driver's whole journal.
+ */
+@RestController
+@RequestMapping("/api/drivers/{driverId}")
+public class JournalController {
+
+    @Autowired
+    private JournalImportService journalImportService;
+
+    @Autowired
+    private JournalExportService journalExportService;
+
+    /**
+     * Imports a journal for the specified driver. The journal is an object
+     * holding the "locations", "stops" and "rides" arrays. The records
+     * reference each other with the references given in the journal. The
+     * invalid records are not imported and are listed in the report.
+     *
+     * @param driver is the driver to import a journal for.
+     * @param journal is the journal document.
+     * @return the response containing the import report.
+     * @throws ResponseStatusException when the driver does not exist (404) or
+     * when the document is not a journal (400).
+     */
+    @PostMapping(path = "/journal", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<JournalImportReport> importJournal(
+            @AuthenticatedDriver Driver driver,
+            InputStream journal
+    ) {
+        try {
+            return ResponseEntity.ok(journalImportService.importJournal(driver.getIdentifier(), journal));
+        } catch (IOException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+
+    /**
+     * Exports the rides of the specified driver with their stops and
+     * locations. The response is written as the rides are read.
+     *
+     * @param driver is the driver to export the journal of.
+     * @param format is the name of the export format: "ndjson" (default) or
+     * "csv".
+     * @return the response streaming the rides.
+     * @throws ResponseStatusException when the driver does not exist (404) or
+     * when the format is unknown (400).
+     */
+    @GetMapping(path = "/journal")
+    public ResponseEntity<StreamingResponseBody> exportJournal(
+            @AuthenticatedDriver Driver driver,
+            @RequestParam(value = "format", defaultValue = "ndjson") String format
+    ) {
+        try {
+            JournalExportFormat exportFormat = JournalExportFormat.of(format);
+            return ResponseEntity.ok()
+                    .contentType(exportFormat.getMediaType())
+                    .body(output -> journalExportService.export(driver.getIdentifier(), exportFormat, output));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+
+}
@@ -0,0 +1,47 @@
+package journal.de.bord.api.journal;
+
+import org.springframework.http.MediaType;
+
+/**
+ * Lists the formats a journal can be exported to.
+ */
+public enum JournalExportFormat {
+
+    /**
+     * Writes one JSON ride, with its stops and their locations, per line.
+     */
+    NDJSON(MediaType.valueOf("application/x-ndjson")),
+
+    /**
+     * Writes one ride per row after a header row.
+     */
+    CSV(MediaType.valueOf("text/csv"));
+
+    private final MediaType mediaType;
+
+    JournalExportFormat(MediaType mediaType) {
+        this.mediaType = mediaType;
+    }
+
+    public MediaType getMediaType() {
+        return mediaType;
+    }
+
+    /**
+     * Gets the format with the given name, ignoring the case.
+     *
+     * @param name is the name of the format.
+     * @return the format.
+     * @throws IllegalArgumentException when there is no format with the given
+     * name.
+     */
+    public static JournalExportFormat of(String name) {
+        for (JournalExportFormat format : values()) {
+            if (format.name().equalsIgnoreCase(name)) {
+                return format;
+            }
+        }
+        throw new IllegalArgumentException("Unknown export format: " + name);
+    }
+
+}
@@ -0,0 +1,142 @@
+package journal.de.bord.api.journal;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import journal.de.bord.api.locations.Location;
+import journal.de.bord.api.rides.Ride;
+import journal.de.bord.api.rides.RideRepository;
+import journal.de.bord.api.rides.RideView;
+import journal.de.bord.api.stops.Stop;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.stream.Stream;
+
+@Service
+public class JournalExportService {
+
+    private static final String[] CSV_HEADER = {
+            "id",
+            "departure_moment", "departure_odometer_value",
+            "departure_location", "departure_latitude", "departure_longitude",
+            "arrival_moment", "arrival_odometer_value",
+            "arrival_location", "arrival_latitude", "arrival_longitude",
+            "traffic_condition", "comment"
+    };
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private RideRepository rideRepository;
+
+    /**
+     * Writes the rides of the given driver, with their stops and locations,
+     * ordered by departure moment. The JSON lines hold the views of the
+     * rides returned by the API, not the entities. The rides are read from a
+     * database cursor and detached once written so that the memory used does
+     * not depend on the size of the history.
+     *
+     * @param driverId is the identifier of the driver to export the rides of.
+     * @param format is the format to write the rides in.
+     * @param output is the stream to write the rides to. It is not closed.
+     * @throws NullPointerException when one of the arguments is null.
+     * @throws UncheckedIOException when the rides cannot be written.
+     */
+    public void export(String driverId, JournalExportFormat format, OutputStream output) {
+        Objects.requireNonNull(driverId, "\"driverId\" argument is null");
+        Objects.requireNonNull(format, "\"format\" argument is null");
+        Objects.requireNonNull(output, "\"output\" argument is null");
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.setReadOnly(true);
+        transaction.executeWithoutResult(status -> {
+            try (Stream<Ride> rides = rideRepository.streamByDriverIdentifier(driverId)) {
+                if (format == JournalExportFormat.NDJSON) {
+                    writeJson(rides.iterator(), output);
+                } else {
+                    writeCsv(rides.iterator(), output);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    private void writeJson(Iterator<Ride> rides, OutputStream output) throws IOException {
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(output);
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        generator.setRootValueSeparator(null);
+        while (rides.hasNext()) {
+            Ride ride = rides.next();
+            objectMapper.writeValue(generator, RideView.of(ride));
+            generator.writeRaw('\n');
+            entityManager.detach(ride);
+        }
+        generator.close();
+    }
+
+    private void writeCsv(Iterator<Ride> rides, OutputStream output) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+        writeCsvRow(writer, (Object[]) CSV_HEADER);
+        while (rides.hasNext()) {
+            Ride ride = rides.next();
+            Stop departure = ride.getDeparture();
+            Stop arrival = ride.getArrival();
+            Object[] row = new Object[CSV_HEADER.length];
+            row[0] = ride.getId();
+            setCsvStop(row, 1, departure);
+            setCsvStop(row, 6, arrival);
+            row[11] = ride.getTrafficCondition();
+            row[12] = ride.getComment();
+            writeCsvRow(writer, row);
+            entityManager.detach(ride);
+        }
+        writer.flush();
+    }
+
+    private static void setCsvStop(Object[] row, int offset, Stop stop) {
+        if (stop != null) {
+            Location location = stop.getLocation();
+            row[offset] = stop.getMoment();
+            row[offset + 1] = stop.getOdometerValue();
+            row[offset + 2] = location.getName();
+            row[offset + 3] = location.getLatitude();
+            row[offset + 4] = location.getLongitude();
+        }
+    }
+
+    private static void writeCsvRow(Writer writer, Object... values) throws IOException {
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            if (values[i] != null) {
+                writer.write(escapeCsv(values[i].toString()));
+            }
+        }
+        writer.write("\r\n");
+    }
+
+    private static String escapeCsv(String value) {
+        boolean quoted = value.indexOf(',') >= 0
+                || value.indexOf('"') >= 0
+                || value.indexOf('\n') >= 0
+                || value.indexOf('\r') >= 0;
+        return quoted ? '"' + value.replace("\"", "\"\"") + '"' : value;
+    }
+
+}
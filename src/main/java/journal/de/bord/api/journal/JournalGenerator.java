@@ -0,0 +1,113 @@
+package journal.de.bord.api.journal;
+
+import journal.de.bord.api.drivers.DriverDto;
+import journal.de.bord.api.drivers.DriverService;
+import journal.de.bord.api.rides.TrafficCondition;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.Objects;
+import java.util.Random;
+
+/**
+ * Generates synthetic journals for load tests and benchmarks. A journal is
+ * only determined by the seed and its sizes so that the same dataset can be
+ * generated on any database. The records are written through the journal
+ * importer, by batches.
+ */
+@Service
+public class JournalGenerator {
+
+    /**
+     * Is the moment of the first generated stop.
+     */
+    public static final LocalDateTime START = LocalDateTime.of(2015, 1, 1, 8, 0);
+
+    private static final double CENTER_LATITUDE = 50.85;
+    private static final double CENTER_LONGITUDE = 4.35;
+
+    /*
+     * The traffic conditions are drawn with these weights, in the order of
+     * TrafficCondition.values().
+     */
+    private static final int[] TRAFFIC_CONDITION_WEIGHTS = {5, 20, 45, 20, 10};
+
+    @Autowired
+    private DriverService driverService;
+
+    @Autowired
+    private JournalImportService journalImportService;
+
+    /**
+     * Creates a driver and generates its journal. The stops are made at
+     * increasing moments with increasing odometer values and each ride goes
+     * from one stop to the next one, so that every ride is valid.
+     *
+     * @param driverId is the identifier of the driver to create.
+     * @param seed is the seed of the journal.
+     * @param locations is the number of locations to generate.
+     * @param rides is the number of rides to generate, they have two stops
+     * each.
+     * @return the import report.
+     * @throws NullPointerException when the driver id is null.
+     * @throws IllegalArgumentException when the sizes are negative or when
+     * there are rides without locations.
+     * @throws IllegalStateException when the driver already exists.
+     */
+    public JournalImportReport generate(String driverId, long seed, int locations, int rides) {
+        Objects.requireNonNull(driverId, "\"driverId\" argument is null");
+        if (locations < 0 || rides < 0 || (rides > 0 && locations == 0)) {
+            throw new IllegalArgumentException("Invalid journal size: " + locations + " locations, " + rides + " rides");
+        }
+        if (driverService.exist(driverId)) {
+            throw new IllegalStateException("The driver already exists: " + driverId);
+        }
+        driverService.create(new DriverDto(driverId, 10_000L));
+        Random random = new Random(seed);
+        JournalImporter importer = journalImportService.createImporter(driverId);
+        for (int i = 0; i < locations; i++) {
+            importer.addLocation(new JournalLocation(
+                    location(i),
+                    "Location " + i,
+                    CENTER_LATITUDE + (random.nextDouble() - 0.5),
+                    CENTER_LONGITUDE + (random.nextDouble() - 0.5)
+            ));
+        }
+        LocalDateTime moment = START;
+        long odometerValue = random.nextInt(100_000);
+        for (int i = 0; i < rides; i++) {
+            moment = moment.plusMinutes(30 + random.nextInt(48 * 60));
+            importer.addStop(new JournalStop(stop(2 * i), location(random.nextInt(locations)), moment, odometerValue));
+            moment = moment.plusMinutes(5 + random.nextInt(180));
+            odometerValue += 1 + random.nextInt(150);
+            importer.addStop(new JournalStop(stop(2 * i + 1), location(random.nextInt(locations)), moment, odometerValue));
+        }
+        for (int i = 0; i < rides; i++) {
+            String comment = random.nextInt(10) == 0 ? "Comment " + i : null;
+            importer.addRide(new JournalRide(stop(2 * i), stop(2 * i + 1), trafficCondition(random), comment));
+        }
+        return journalImportService.finish(driverId, importer);
+    }
+
+    private static String location(int index) {
+        return "l" + index;
+    }
+
+    private static String stop(int index) {
+        return "s" + index;
+    }
+
+    private static TrafficCondition trafficCondition(Random random) {
+        int drawn = random.nextInt(100);
+        TrafficCondition[] conditions = TrafficCondition.values();
+        for (int i = 0; i < conditions.length; i++) {
+            drawn -= TRAFFIC_CONDITION_WEIGHTS[i];
+            if (drawn < 0) {
+                return conditions[i];
+            }
+        }
+        return TrafficCondition.NORMAL;
+    }
+
+}
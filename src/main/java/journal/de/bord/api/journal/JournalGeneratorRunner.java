@@ -0,0 +1,60 @@
+package journal.de.bord.api.journal;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+/**
+ * Fills the database with synthetic journals when the application is started
+ * with the {@code dataset} profile. The drivers are named after the given
+ * prefix and their index, each driver journal is generated from the seed and
+ * the driver index so the dataset only depends on the dataset properties.
+ */
+@Component
+@Profile("dataset")
+public class JournalGeneratorRunner implements ApplicationRunner {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(JournalGeneratorRunner.class);
+
+    @Autowired
+    private JournalGenerator generator;
+
+    @Value("${dataset.seed:42}")
+    private long seed;
+
+    @Value("${dataset.drivers:1}")
+    private int drivers;
+
+    @Value("${dataset.driver-prefix:driver-}")
+    private String driverPrefix;
+
+    @Value("${dataset.locations:1000}")
+    private int locations;
+
+    @Value("${dataset.rides:100000}")
+    private int rides;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        for (int i = 0; i < drivers; i++) {
+            String driverId = driverPrefix + i;
+            long start = System.currentTimeMillis();
+            JournalImportReport report = generator.generate(driverId, seed + i, locations, rides);
+            LOGGER.info(
+                    "Generated the journal of {} in {} ms: {} locations, {} stops, {} rides, {} errors.",
+                    driverId,
+                    System.currentTimeMillis() - start,
+                    report.getLocations(),
+                    report.getStops(),
+                    report.getRides(),
+                    report.getErrors().size()
+            );
+        }
+    }
+
+}
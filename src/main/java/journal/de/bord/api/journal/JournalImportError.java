@@ -0,0 +1,25 @@
+package journal.de.bord.api.journal;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * Describes a record of an imported journal that could not be imported.
+ */
+@Data
+@AllArgsConstructor
+public class JournalImportError {
+
+    /**
+     * The section of the record: locations, stops or rides.
+     */
+    private String section;
+
+    /**
+     * The position of the record in its section, starting from zero.
+     */
+    private long index;
+
+    private String message;
+
+}
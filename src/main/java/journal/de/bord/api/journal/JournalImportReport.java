@@ -0,0 +1,23 @@
+package journal.de.bord.api.journal;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tells how many records of a journal have been imported and why the other
+ * ones have not.
+ */
+@Data
+public class JournalImportReport {
+
+    private long locations;
+
+    private long stops;
+
+    private long rides;
+
+    private final List<JournalImportError> errors = new ArrayList<>();
+
+}
@@ -0,0 +1,170 @@
+package journal.de.bord.api.journal;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import journal.de.bord.api.drivers.Driver;
+import journal.de.bord.api.drivers.DriverRepository;
+import journal.de.bord.api.drivers.DriverService;
+import journal.de.bord.api.drivers.DriverStatisticsService;
+import journal.de.bord.api.locations.LocationRepository;
+import journal.de.bord.api.rides.Ride;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.validation.Validator;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Objects;
+
+@Service
+public class JournalImportService {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private Validator validator;
+
+    @Autowired
+    private LocationRepository locationRepository;
+
+    @Autowired
+    private DriverStatisticsService statisticsService;
+
+    @Autowired
+    private DriverRepository driverRepository;
+
+    @Autowired
+    private DriverService driverService;
+
+    /**
+     * Creates an importer for the given driver. The importer should be
+     * finished with {@link #finish(JournalImporter)}.
+     *
+     * @param driverId is the identifier of the driver to import records for.
+     * @return the importer.
+     * @throws NullPointerException when the driver id is null.
+     */
+    public JournalImporter createImporter(String driverId) {
+        Objects.requireNonNull(driverId, "\"driverId\" argument is null");
+        Ride lastRide = driverRepository.findWithLastRideByIdentifier(driverId)
+                .flatMap(Driver::getLastRide)
+                .orElse(null);
+        return new JournalImporter(
+                driverId,
+                lastRide,
+                locationRepository.findNamesByDriverIdentifier(driverId),
+                entityManager,
+                new TransactionTemplate(transactionManager),
+                validator,
+                statisticsService
+        );
+    }
+
+    /**
+     * Saves the pending records of the given importer and updates the
+     * driver's last ride. The driver's statistics account for the records as
+     * they are saved.
+     *
+     * @param driverId is the identifier of the driver the records are imported
+     * for.
+     * @param importer is the importer to finish.
+     * @return the import report.
+     */
+    public JournalImportReport finish(String driverId, JournalImporter importer) {
+        JournalImportReport report = importer.finish();
+        if (report.getRides() > 0) {
+            driverService.refreshLastRide(driverId);
+        }
+        return report;
+    }
+
+    /**
+     * Imports a journal document for the given driver. The document is an
+     * object holding the "locations", "stops" and "rides" arrays, in that
+     * order. It is read as a stream so that its size is not limited by the
+     * memory.
+     *
+     * @param driverId is the identifier of the driver to import the journal for.
+     * @param input is the journal document.
+     * @return the import report.
+     * @throws IOException when the document cannot be read or is not a
+     * journal document.
+     */
+    public JournalImportReport importJournal(String driverId, InputStream input) throws IOException {
+        Objects.requireNonNull(input, "\"input\" argument is null");
+        JournalImporter importer = createImporter(driverId);
+        try (JsonParser parser = objectMapper.getFactory().createParser(input)) {
+            expect(parser.nextToken(), JsonToken.START_OBJECT, parser);
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String section = parser.getCurrentName();
+                JsonToken token = parser.nextToken();
+                switch (section) {
+                    case JournalImporter.LOCATIONS:
+                        expect(token, JsonToken.START_ARRAY, parser);
+                        while (parser.nextToken() != JsonToken.END_ARRAY) {
+                            JournalLocation record = read(parser, JournalLocation.class, section, importer);
+                            if (record != null) {
+                                importer.addLocation(record);
+                            }
+                        }
+                        break;
+                    case JournalImporter.STOPS:
+                        expect(token, JsonToken.START_ARRAY, parser);
+                        while (parser.nextToken() != JsonToken.END_ARRAY) {
+                            JournalStop record = read(parser, JournalStop.class, section, importer);
+                            if (record != null) {
+                                importer.addStop(record);
+                            }
+                        }
+                        break;
+                    case JournalImporter.RIDES:
+                        expect(token, JsonToken.START_ARRAY, parser);
+                        while (parser.nextToken() != JsonToken.END_ARRAY) {
+                            JournalRide record = read(parser, JournalRide.class, section, importer);
+                            if (record != null) {
+                                importer.addRide(record);
+                            }
+                        }
+                        break;
+                    default:
+                        parser.skipChildren();
+                }
+            }
+        } finally {
+            finish(driverId, importer);
+        }
+        return importer.getReport();
+    }
+
+    private <T> T read(JsonParser parser, Class<T> type, String section, JournalImporter importer) throws IOException {
+        JsonNode node = parser.readValueAsTree();
+        try {
+            return objectMapper.treeToValue(node, type);
+        } catch (JsonProcessingException e) {
+            importer.reject(section, "The record cannot be read: " + e.getOriginalMessage());
+            return null;
+        }
+    }
+
+    private static void expect(JsonToken actual, JsonToken expected, JsonParser parser) throws IOException {
+        if (actual != expected) {
+            throw new JsonParseException(parser, "Expected " + expected + " but found " + actual);
+        }
+    }
+
+}
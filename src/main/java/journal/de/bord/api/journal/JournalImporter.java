@@ -0,0 +1,446 @@
+package journal.de.bord.api.journal;
+
+import journal.de.bord.api.drivers.Driver;
+import journal.de.bord.api.drivers.DriverStatisticsService;
+import journal.de.bord.api.locations.Location;
+import journal.de.bord.api.rides.Ride;
+import journal.de.bord.api.stops.Stop;
+import org.hibernate.Session;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.dao.DataAccessException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceException;
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Imports the records of a journal for one driver. The records are validated
+ * one by one and the valid ones are saved by chunks, each chunk in its own
+ * transaction and with large JDBC batches. A record can only reference the
+ * records given before it: the stops reference their location and the rides
+ * reference their stops by the reference given in the journal.
+ *
+ * The driver's statistics account for the records of a chunk within its
+ * transaction, so that an import never reads the driver's history again.
+ *
+ * When a chunk cannot be saved, each of its halves is saved again in its own
+ * transaction, down to single records, so that only the records refused by
+ * the database are rejected. The records referencing a rejected record are
+ * rejected too.
+ *
+ * An importer keeps the ids of the imported records so that it can resolve
+ * the references. It should be used for a single import.
+ */
+public class JournalImporter {
+
+    static final String LOCATIONS = "locations";
+    static final String STOPS = "stops";
+    static final String RIDES = "rides";
+
+    private static final int CHUNK_SIZE = 1000;
+    private static final int JDBC_BATCH_SIZE = 500;
+
+    /**
+     * Is a valid record waiting for its chunk to be saved. Its entity is
+     * created again each time the record is saved so that an entity left with
+     * an id by a rolled back transaction is never persisted again.
+     */
+    private static class PendingRecord<T> {
+
+        private final String section;
+        private final long index;
+        private final Function<EntityManager, T> entityFactory;
+        private final Consumer<T> onSaved;
+        private final Runnable onRejected;
+        private T entity;
+
+        PendingRecord(
+                String section,
+                long index,
+                Function<EntityManager, T> entityFactory,
+                Consumer<T> onSaved,
+                Runnable onRejected
+        ) {
+            this.section = section;
+            this.index = index;
+            this.entityFactory = entityFactory;
+            this.onSaved = onSaved;
+            this.onRejected = onRejected;
+        }
+
+        void persist(EntityManager entityManager) {
+            entity = entityFactory.apply(entityManager);
+            entityManager.persist(entity);
+        }
+
+        void saved() {
+            onSaved.accept(entity);
+        }
+
+    }
+
+    private final String driverId;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final Validator validator;
+    private final DriverStatisticsService statisticsService;
+    private final JournalImportReport report = new JournalImportReport();
+
+    /**
+     * Holds the driver's last ride only. It is used to tell if the driver can
+     * start the imported rides.
+     */
+    private final Driver driver;
+
+    /**
+     * Is the driver's last saved ride. The driver's last ride is set back to
+     * it once a chunk is saved, since the pending rides of the chunk may have
+     * been rejected.
+     */
+    private Ride lastSavedRide;
+
+    private final Set<String> locationNames;
+
+    /*
+     * The references of the pending records are mapped to null until their
+     * chunk is saved. The references of the rejected records are kept apart
+     * so that the records referencing them are told why they are rejected.
+     */
+
+    private final Map<String, Long> locations = new HashMap<>();
+    private final Map<String, Stop> stops = new HashMap<>();
+    private final Set<String> rejectedLocations = new HashSet<>();
+    private final Set<String> rejectedStops = new HashSet<>();
+
+    /**
+     * Are the (moment, odometer value, location id) keys of the pending and
+     * saved stops. The stop table holds a unique key on these columns for a
+     * driver; a stop repeating a key is rejected before being saved.
+     */
+    private final Set<List<Object>> stopKeys = new HashSet<>();
+
+    private final List<PendingRecord<?>> chunk = new ArrayList<>();
+
+    private long locationIndex = 0;
+    private long stopIndex = 0;
+    private long rideIndex = 0;
+
+    /**
+     * Are the cumulative values of the last saved ride. The imported rides
+     * depart after the driver's last ride so that they continue its values.
+     * They are null when the last ride has none, the rides are then given
+     * their values by a statistics rebuild when the statistics are read.
+     */
+    private Long cumulativeRides;
+    private Long cumulativeDistance;
+
+    /**
+     * Initializes an importer for the given driver.
+     *
+     * @param driverId is the identifier of the driver to import a journal for.
+     * @param lastRide is the driver's last ride, null if the driver has not
+     * driven yet.
+     * @param locationNames are the names of the driver's locations.
+     * @param entityManager is the entity manager saving the records.
+     * @param transactionTemplate creates the transaction of each chunk.
+     * @param validator validates the records.
+     * @param statisticsService accounts for the saved records in the driver's
+     * statistics.
+     */
+    public JournalImporter(
+            String driverId,
+            Ride lastRide,
+            Collection<String> locationNames,
+            EntityManager entityManager,
+            TransactionTemplate transactionTemplate,
+            Validator validator,
+            DriverStatisticsService statisticsService
+    ) {
+        this.driverId = Objects.requireNonNull(driverId, "\"driverId\" argument is null");
+        this.entityManager = entityManager;
+        this.transactionTemplate = transactionTemplate;
+        this.validator = validator;
+        this.statisticsService = statisticsService;
+        this.locationNames = new HashSet<>(locationNames);
+        this.driver = new Driver(driverId, 0L);
+        driver.setLastRide(lastRide);
+        this.lastSavedRide = lastRide;
+        this.cumulativeRides = lastRide == null ? Long.valueOf(0L) : lastRide.getCumulativeRides();
+        this.cumulativeDistance = lastRide == null ? Long.valueOf(0L) : lastRide.getCumulativeDistance();
+    }
+
+    public JournalImportReport getReport() {
+        return report;
+    }
+
+    public void addLocation(JournalLocation record) {
+        long index = locationIndex++;
+        startSection(LOCATIONS);
+        String error = validate(record);
+        String reference = record.getReference();
+        if (error == null && isUsed(reference, locations, rejectedLocations)) {
+            error = "The reference is already used: " + reference;
+        }
+        if (error == null && locationNames.contains(record.getName())) {
+            error = String.format("Location's name already exist: \"%s\"", record.getName());
+        }
+        if (error != null) {
+            rejectReference(reference, locations, rejectedLocations);
+            reject(LOCATIONS, index, error);
+            return;
+        }
+        locationNames.add(record.getName());
+        locations.put(reference, null);
+        enqueue(new PendingRecord<>(LOCATIONS, index, em -> {
+            Location location = new Location(record.getName(), record.getLatitude(), record.getLongitude());
+            location.setId(null);
+            location.setDriver(em.getReference(Driver.class, driverId));
+            return location;
+        }, location -> {
+            locations.put(reference, location.getId());
+            report.setLocations(report.getLocations() + 1);
+        }, () -> {
+            locationNames.remove(record.getName());
+            locations.remove(reference);
+            rejectedLocations.add(reference);
+        }));
+    }
+
+    public void addStop(JournalStop record) {
+        long index = stopIndex++;
+        startSection(STOPS);
+        String error = validate(record);
+        String reference = record.getReference();
+        Long locationId = error == null ? locations.get(record.getLocation()) : null;
+        if (error == null && rejectedLocations.contains(record.getLocation())) {
+            error = "The location was rejected: " + record.getLocation();
+        } else if (error == null && locationId == null) {
+            error = "Unknown location: " + record.getLocation();
+        }
+        if (error == null && isUsed(reference, stops, rejectedStops)) {
+            error = "The reference is already used: " + reference;
+        }
+        List<Object> key = Arrays.asList(record.getMoment(), record.getOdometerValue(), locationId);
+        if (error == null && stopKeys.contains(key)) {
+            error = "A stop with the same moment, odometer value and location already exists.";
+        }
+        if (error != null) {
+            rejectReference(reference, stops, rejectedStops);
+            reject(STOPS, index, error);
+            return;
+        }
+        stopKeys.add(key);
+        stops.put(reference, null);
+        enqueue(new PendingRecord<>(STOPS, index, em -> {
+            Stop stop = new Stop(record.getMoment(), record.getOdometerValue(), null);
+            stop.setLocation(em.getReference(Location.class, locationId));
+            stop.setDriver(em.getReference(Driver.class, driverId));
+            return stop;
+        }, stop -> {
+            Stop saved = new Stop(stop.getMoment(), stop.getOdometerValue(), null);
+            saved.setId(stop.getId());
+            stops.put(reference, saved);
+            report.setStops(report.getStops() + 1);
+        }, () -> {
+            stopKeys.remove(key);
+            stops.remove(reference);
+            rejectedStops.add(reference);
+        }));
+    }
+
+    public void addRide(JournalRide record) {
+        long index = rideIndex++;
+        startSection(RIDES);
+        String error = validate(record);
+        Stop departure = error == null ? stops.get(record.getDeparture()) : null;
+        Stop arrival = error == null && record.getArrival() != null ? stops.get(record.getArrival()) : null;
+        if (error == null && rejectedStops.contains(record.getDeparture())) {
+            error = "The departure was rejected: " + record.getDeparture();
+        } else if (error == null && record.getArrival() != null && rejectedStops.contains(record.getArrival())) {
+            error = "The arrival was rejected: " + record.getArrival();
+        } else if (error == null && departure == null) {
+            error = "Unknown departure: " + record.getDeparture();
+        } else if (error == null && record.getArrival() != null && arrival == null) {
+            error = "Unknown arrival: " + record.getArrival();
+        } else if (error == null && record.getDeparture().equals(record.getArrival())) {
+            error = "The departure and the arrival are the same stop.";
+        }
+        Ride ride = new Ride(departure, arrival);
+        if (error == null && !ride.isValid()) {
+            error = "Invalid ride.";
+        }
+        if (error == null && !driver.canStartWith(departure)) {
+            error = "The driver cannot start a ride with this departure.";
+        }
+        if (error != null) {
+            reject(RIDES, index, error);
+            return;
+        }
+        driver.setLastRide(ride);
+        Long departureId = departure.getId();
+        Long arrivalId = arrival == null ? null : arrival.getId();
+        enqueue(new PendingRecord<>(RIDES, index, em -> {
+            Ride entity = new Ride();
+            entity.setDeparture(em.getReference(Stop.class, departureId));
+            entity.setArrival(arrivalId == null ? null : em.getReference(Stop.class, arrivalId));
+            entity.measure(departure, arrival);
+            if (cumulativeRides != null && cumulativeDistance != null) {
+                cumulativeRides += 1;
+                cumulativeDistance += entity.getStoredDistance();
+            }
+            entity.setCumulativeRides(cumulativeRides);
+            entity.setCumulativeDistance(cumulativeDistance);
+            entity.setDriver(em.getReference(Driver.class, driverId));
+            if (record.getTrafficCondition() != null) {
+                entity.setTrafficCondition(record.getTrafficCondition());
+            }
+            entity.setComment(record.getComment());
+            return entity;
+        }, entity -> {
+            lastSavedRide = ride;
+            report.setRides(report.getRides() + 1);
+        }, () -> {
+            // No record references a ride.
+        }));
+    }
+
+    /**
+     * Saves the records that are still pending.
+     *
+     * @return the import report.
+     */
+    public JournalImportReport finish() {
+        flush();
+        return report;
+    }
+
+    /**
+     * Records an error for a record that could not be read.
+     *
+     * @param section is the section of the record.
+     * @param message describes why the record could not be read.
+     */
+    public void reject(String section, String message) {
+        long index;
+        switch (section) {
+            case LOCATIONS: index = locationIndex++; break;
+            case STOPS: index = stopIndex++; break;
+            default: index = rideIndex++; break;
+        }
+        reject(section, index, message);
+    }
+
+    private void reject(String section, long index, String message) {
+        report.getErrors().add(new JournalImportError(section, index, message));
+    }
+
+    private static boolean isUsed(String reference, Map<String, ?> references, Set<String> rejected) {
+        return references.containsKey(reference) || rejected.contains(reference);
+    }
+
+    /**
+     * Keeps the reference of a record rejected before being saved, unless it
+     * is blank or already used by an other record.
+     */
+    private static void rejectReference(String reference, Map<String, ?> references, Set<String> rejected) {
+        if (reference != null && !reference.trim().isEmpty() && !references.containsKey(reference)) {
+            rejected.add(reference);
+        }
+    }
+
+    private <T> String validate(T record) {
+        Set<ConstraintViolation<T>> violations = validator.validate(record);
+        if (violations.isEmpty()) {
+            return null;
+        }
+        return violations.stream()
+                .map(v -> v.getPropertyPath() + " " + v.getMessage())
+                .sorted()
+                .collect(Collectors.joining(", "));
+    }
+
+    /**
+     * The records of a section reference the records of the previous ones.
+     * The pending records are saved before starting a new section so that
+     * their ids are known.
+     */
+    private void startSection(String section) {
+        if (!chunk.isEmpty() && !chunk.get(0).section.equals(section)) {
+            flush();
+        }
+    }
+
+    private void enqueue(PendingRecord<?> record) {
+        chunk.add(record);
+        if (chunk.size() >= CHUNK_SIZE) {
+            flush();
+        }
+    }
+
+    private void flush() {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        try {
+            save(new ArrayList<>(chunk));
+        } finally {
+            chunk.clear();
+            driver.setLastRide(lastSavedRide);
+        }
+    }
+
+    /**
+     * Saves the given records and accounts for them in the driver's
+     * statistics in one transaction. When the transaction is
+     * rolled back, the cumulative values are restored and each half of the
+     * records is saved on its own. A single record that cannot be saved is
+     * rejected. A chunk holding a single bad record is saved in about
+     * 2 log2(n) transactions for n records.
+     */
+    private void save(List<PendingRecord<?>> records) {
+        Long savedRides = cumulativeRides;
+        Long savedDistance = cumulativeDistance;
+        try {
+            transactionTemplate.execute(status -> {
+                entityManager.unwrap(Session.class).setJdbcBatchSize(JDBC_BATCH_SIZE);
+                long locations = 0;
+                List<Ride> rides = new ArrayList<>();
+                for (PendingRecord<?> record : records) {
+                    record.persist(entityManager);
+                    if (record.entity instanceof Location) {
+                        locations++;
+                    } else if (record.entity instanceof Ride) {
+                        rides.add((Ride) record.entity);
+                    }
+                }
+                entityManager.flush();
+                statisticsService.recordImported(driverId, locations, rides);
+                entityManager.flush();
+                entityManager.clear();
+                return null;
+            });
+            records.forEach(PendingRecord::saved);
+        } catch (PersistenceException | DataAccessException e) {
+            entityManager.clear();
+            cumulativeRides = savedRides;
+            cumulativeDistance = savedDistance;
+            if (records.size() > 1) {
+                int half = records.size() / 2;
+                save(records.subList(0, half));
+                save(records.subList(half, records.size()));
+            } else {
+                PendingRecord<?> record = records.get(0);
+                record.onRejected.run();
+                reject(record.section, record.index, "The record could not be saved: "
+                        + NestedExceptionUtils.getMostSpecificCause(e).getMessage());
+            }
+        }
+    }
+
+}
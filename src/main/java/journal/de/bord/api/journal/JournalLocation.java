@@ -0,0 +1,35 @@
+package journal.de.bord.api.journal;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.validation.constraints.NotBlank;
+import javax.validation.constraints.NotNull;
+
+/**
+ * Is a location of an imported journal.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class JournalLocation {
+
+    /**
+     * Identifies this location in the imported journal. The stops use it to
+     * reference their location.
+     */
+    @NotBlank
+    private String reference;
+
+    @NotBlank
+    @NotNull
+    private String name;
+
+    @NotNull
+    private Double latitude;
+
+    @NotNull
+    private Double longitude;
+
+}
@@ -0,0 +1,39 @@
+package journal.de.bord.api.journal;
+
+import journal.de.bord.api.rides.TrafficCondition;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.lang.Nullable;
+
+import javax.validation.constraints.NotBlank;
+
+/**
+ * Is a ride of an imported journal. The rides should be listed in the order
+ * they have been made.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class JournalRide {
+
+    /**
+     * The reference of the departure stop in the imported journal.
+     */
+    @NotBlank
+    private String departure;
+
+    /**
+     * The reference of the arrival stop in the imported journal. It is null
+     * for a ride that is not finished.
+     */
+    @Nullable
+    private String arrival;
+
+    @Nullable
+    private TrafficCondition trafficCondition;
+
+    @Nullable
+    private String comment;
+
+}
@@ -0,0 +1,40 @@
+package journal.de.bord.api.journal;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotBlank;
+import javax.validation.constraints.NotNull;
+import java.time.LocalDateTime;
+
+/**
+ * Is a stop of an imported journal.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class JournalStop {
+
+    /**
+     * Identifies this stop in the imported journal. The rides use it to
+     * reference their departure and arrival.
+     */
+    @NotBlank
+    private String reference;
+
+    /**
+     * The reference of this stop location in the imported journal.
+     */
+    @NotBlank
+    private String location;
+
+    @NotNull
+    private LocalDateTime moment;
+
+    @NotNull
+    @Min(0)
+    private Long odometerValue;
+
+}
@@ -0,0 +1,157 @@
+package journal.de.bord.api.locations;
+
+import lombok.Data;
+
+/**
+ * Is the latitude and longitude ranges enclosing the circle of a given radius
+ * around a position. The locations in the circle are found by reading the
+ * locations in the grid cells covering the area, which are index range
+ * scans, and keeping the ones whose distance is below the radius.
+ */
+@Data
+class GeoArea {
+
+    /**
+     * Is the mean radius of the Earth in meters.
+     */
+    static final double EARTH_RADIUS = 6_371_008.8;
+
+    /**
+     * Is the largest distance between two positions in meters. An area whose
+     * radius is at least this distance covers the whole Earth.
+     */
+    static final double MAX_DISTANCE = Math.PI * EARTH_RADIUS;
+
+    /**
+     * Is the number of bits of the latitude and of the longitude indexes in
+     * a cell. The finest cells are about 1 cm wide.
+     */
+    static final int CELL_BITS = 31;
+
+    private final double minLatitude;
+    private final double maxLatitude;
+    private final double minLongitude;
+    private final double maxLongitude;
+
+    /**
+     * Creates the area enclosing the circle around the given position. When
+     * the circle crosses a pole or the antimeridian the area covers every
+     * longitude.
+     *
+     * @param latitude is the latitude of the center in degrees.
+     * @param longitude is the longitude of the center in degrees.
+     * @param radius is the radius of the circle in meters.
+     * @return the area.
+     */
+    static GeoArea around(double latitude, double longitude, double radius) {
+        double angle = radius / EARTH_RADIUS;
+        double latitudeDelta = Math.toDegrees(angle);
+        double minLatitude = latitude - latitudeDelta;
+        double maxLatitude = latitude + latitudeDelta;
+        if (minLatitude <= -90 || maxLatitude >= 90 || angle >= Math.PI / 2) {
+            return new GeoArea(Math.max(minLatitude, -90), Math.min(maxLatitude, 90), -180, 180);
+        }
+        double longitudeDelta = Math.toDegrees(Math.asin(Math.sin(angle) / Math.cos(Math.toRadians(latitude))));
+        double minLongitude = longitude - longitudeDelta;
+        double maxLongitude = longitude + longitudeDelta;
+        if (minLongitude < -180 || maxLongitude > 180) {
+            return new GeoArea(minLatitude, maxLatitude, -180, 180);
+        }
+        return new GeoArea(minLatitude, maxLatitude, minLongitude, maxLongitude);
+    }
+
+    /**
+     * Computes the grid cell of a position. The latitude and the longitude
+     * are mapped to {@link #CELL_BITS} bits indexes whose bits are
+     * interleaved, the longitude bit first, so that the cells sharing a
+     * prefix of their code form a rectangle and are a range of codes. The
+     * cells close to each other mostly have close codes.
+     *
+     * @param latitude is the latitude in degrees.
+     * @param longitude is the longitude in degrees.
+     * @return the cell code, a positive number.
+     */
+    static long cell(double latitude, double longitude) {
+        return interleave(longitudeIndex(longitude), latitudeIndex(latitude));
+    }
+
+    /**
+     * Gets the ranges of cell codes covering this area. The coarsest cells
+     * whose size spans the area are used, so that the area overlaps at most
+     * two of them along each axis and the locations of the area are read with
+     * at most four range scans. An area covering every longitude, around a
+     * pole or across the antimeridian, is covered by halves of the grid, its
+     * locations are then mostly filtered by their coordinates.
+     *
+     * @return the first and the last code of each of the four ranges, some
+     * ranges may be repeated.
+     */
+    long[] cellRanges() {
+        long minLatitudeIndex = latitudeIndex(minLatitude);
+        long maxLatitudeIndex = latitudeIndex(maxLatitude);
+        long minLongitudeIndex = longitudeIndex(minLongitude);
+        long maxLongitudeIndex = longitudeIndex(maxLongitude);
+        int shift = 0;
+        while (shift < CELL_BITS && ((maxLatitudeIndex >> shift) - (minLatitudeIndex >> shift) > 1
+                || (maxLongitudeIndex >> shift) - (minLongitudeIndex >> shift) > 1)) {
+            shift++;
+        }
+        long[] latitudes = {minLatitudeIndex >> shift, maxLatitudeIndex >> shift};
+        long[] longitudes = {minLongitudeIndex >> shift, maxLongitudeIndex >> shift};
+        long[] ranges = new long[8];
+        int i = 0;
+        for (long latitudeIndex : latitudes) {
+            for (long longitudeIndex : longitudes) {
+                long first = interleave(longitudeIndex, latitudeIndex) << (2 * shift);
+                ranges[i++] = first;
+                ranges[i++] = first + (1L << (2 * shift)) - 1;
+            }
+        }
+        return ranges;
+    }
+
+    private static long latitudeIndex(double latitude) {
+        return index((latitude + 90) / 180);
+    }
+
+    private static long longitudeIndex(double longitude) {
+        return index((longitude + 180) / 360);
+    }
+
+    private static long index(double fraction) {
+        long max = (1L << CELL_BITS) - 1;
+        return Math.max(0, Math.min(max, (long) Math.floor(fraction * (1L << CELL_BITS))));
+    }
+
+    private static long interleave(long high, long low) {
+        return spread(high) << 1 | spread(low);
+    }
+
+    /**
+     * Moves the bit i of the given 32 bits number to the bit 2i.
+     */
+    private static long spread(long value) {
+        long x = value & 0xFFFFFFFFL;
+        x = (x | (x << 16)) & 0x0000FFFF0000FFFFL;
+        x = (x | (x << 8)) & 0x00FF00FF00FF00FFL;
+        x = (x | (x << 4)) & 0x0F0F0F0F0F0F0F0FL;
+        x = (x | (x << 2)) & 0x3333333333333333L;
+        x = (x | (x << 1)) & 0x5555555555555555L;
+        return x;
+    }
+
+    /**
+     * Computes the great-circle distance between two positions with the
+     * haversine formula.
+     *
+     * @return the distance in meters.
+     */
+    static double distance(double latitude1, double longitude1, double latitude2, double longitude2) {
+        double latitudeSin = Math.sin(Math.toRadians(latitude2 - latitude1) / 2);
+        double longitudeSin = Math.sin(Math.toRadians(longitude2 - longitude1) / 2);
+        double a = latitudeSin * latitudeSin + Math.cos(Math.toRadians(latitude1))
+                * Math.cos(Math.toRadians(latitude2)) * longitudeSin * longitudeSin;
+        return 2 * EARTH_RADIUS * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+
+}
@@ -2,8 +2,15 @@ package journal.de.bord.api.locations;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import journal.de.bord.api.drivers.Driver;
-import lombok.Data;
+import lombok.AccessLevel;
+import lombok.Getter;
 import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
 
 import javax.persistence.*;
 import javax.validation.constraints.NotBlank;
@@ -11,12 +18,22 @@ import javax.validation.constraints.NotNull;
 
 /**
  * Represents one of the location visited by a driver. A driver visits a location by stopping at it.
+ * The locations rarely change and are read with most of the stops, they are kept in the
+ * second-level cache.
  */
 @Entity
-@Table(uniqueConstraints = {
-    @UniqueConstraint(columnNames = {"name", "driver_identifier"})
-})
-@Data
+@Table(
+    uniqueConstraints = {
+        @UniqueConstraint(columnNames = {"name", "driver_identifier"})
+    },
+    indexes = {
+        @Index(name = "location_driver_cell_index", columnList = "driver_identifier, cell")
+    }
+)
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+@Getter
+@Setter
+@ToString
 @NoArgsConstructor
 public class Location {
 
@@ -29,10 +46,14 @@ public class Location {
      */
     @Id
     @GeneratedValue(generator = "location_sequence_generator", strategy = GenerationType.SEQUENCE)
-    @SequenceGenerator(
+    @GenericGenerator(
             name = "location_sequence_generator",
-            sequenceName = "location_sequence",
-            allocationSize = 1
+            strategy = "org.hibernate.id.enhanced.SequenceStyleGenerator",
+            parameters = {
+                    @Parameter(name = "sequence_name", value = "location_sequence"),
+                    @Parameter(name = "increment_size", value = "50"),
+                    @Parameter(name = "optimizer", value = "hilo")
+            }
     )
     private Long id;
 
@@ -55,16 +76,45 @@ public class Location {
     @NotNull()
     private Double longitude;
 
-    @ManyToOne
+    /**
+     * Is the code of the grid cell holding the location, see
+     * {@link GeoArea#cell(double, double)}. It is set with the coordinates so
+     * that the locations of an area are read from a few ranges of the
+     * (driver, cell) index. It is null for the locations saved before it was
+     * stored, until they are located.
+     */
+    @Setter(AccessLevel.NONE)
+    @JsonIgnore
+    private Long cell;
+
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn
     @JsonIgnore
+    @ToString.Exclude
     private Driver driver;
 
     public Location(@NotBlank @NotNull String name, @NotNull Double latitude, @NotNull Double longitude) {
-        this.id = -1L;
         this.name = name;
         this.latitude = latitude;
         this.longitude = longitude;
+        locate();
+    }
+
+    public void setLatitude(Double latitude) {
+        this.latitude = latitude;
+        locate();
+    }
+
+    public void setLongitude(Double longitude) {
+        this.longitude = longitude;
+        locate();
+    }
+
+    /**
+     * Stores the grid cell of the coordinates of this location.
+     */
+    void locate() {
+        cell = latitude == null || longitude == null ? null : GeoArea.cell(latitude, longitude);
     }
 
     public void setValues(LocationDto data) {
@@ -73,4 +123,27 @@ public class Location {
         setLongitude(data.getLongitude());
     }
 
+    /**
+     * Compares the locations by id, like the rides are. A location without id is
+     * only equal to itself.
+     */
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof Location)) {
+            return false;
+        }
+        return id != null && id.equals(((Location) other).getId());
+    }
+
+    /**
+     * Gets a hash code independent of the id, see {@link journal.de.bord.api.rides.Ride#hashCode()}.
+     */
+    @Override
+    public int hashCode() {
+        return Location.class.hashCode();
+    }
+
 }
\ No newline at end of file
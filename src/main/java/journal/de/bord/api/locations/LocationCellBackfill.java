@@ -0,0 +1,36 @@
+package journal.de.bord.api.locations;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Stores the grid cell of the locations saved before it was stored when the
+ * application starts, before the web server accepts requests, so that the
+ * nearest locations searches find them. When every location has its cell
+ * this costs a single query.
+ */
+@Component
+public class LocationCellBackfill implements SmartInitializingSingleton {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(LocationCellBackfill.class);
+
+    @Autowired
+    private LocationService locationService;
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        long located = 0;
+        int page;
+        do {
+            page = locationService.locateUnlocated();
+            located += page;
+        } while (page > 0);
+        if (located > 0) {
+            LOGGER.info("Located {} locations.", located);
+        }
+    }
+
+}
@@ -1,11 +1,10 @@
 package journal.de.bord.api.locations;
 
+import journal.de.bord.api.drivers.AuthenticatedDriver;
 import journal.de.bord.api.drivers.Driver;
-import journal.de.bord.api.drivers.DriverService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
 
@@ -19,8 +18,7 @@ import java.util.List;
 @RequestMapping("/api/drivers/{driverId}")
 public class LocationController {
 
-    @Autowired
-    private DriverService driverService;
+    private static final int MAX_NEARBY_LOCATIONS = 100;
 
     @Autowired
     private LocationService locationService;
@@ -28,19 +26,16 @@ public class LocationController {
     /**
      * Creates a new location for the specified driver.
      *
-     * @param driverId is the pseudonym of the driver to create a new location for.
+     * @param driver is the driver to create a new location for.
      * @return the response without content (created status, 201).
      * @throws ResponseStatusException when the location cannot be created.
      */
     @PostMapping(path = "/locations")
     public ResponseEntity<Object> create(
-            Authentication user,
-            @PathVariable("driverId") String driverId,
+            @AuthenticatedDriver Driver driver,
             @Valid @RequestBody LocationDto location
     ) {
         try {
-            requireAuthenticatedOwner(user.getName(), driverId);
-            Driver driver = driverService.findById(driverId);
             Long id = locationService.createNewLocationFor(driver, location);
             return new ResponseEntity(new Object() {
                 public final Long locationId = id;
@@ -55,29 +50,59 @@ public class LocationController {
     /**
      * Gets all the locations that a driver has visited.
      *
-     * @param driverId is the identifier of the driver to get the locations for.
+     * @param driver is the driver to get the locations for.
      * @return the response containing a list of locations.
      * @throws ResponseStatusException when the specified driver does not exist.
      */
     @GetMapping(path = "/locations")
     public ResponseEntity locations(
-            Authentication user,
-            @PathVariable("driverId") String driverId
+            @AuthenticatedDriver Driver driver
     ) {
         try {
-            requireAuthenticatedOwner(user.getName(), driverId);
-            Driver driver = driverService.findById(driverId);
-            List<Location> locations = locationService.findAllLocationsFor(driver);
+            List<LocationView> locations = locationService.findAllLocationsFor(driver);
             return ResponseEntity.ok(locations);
         } catch (NullPointerException | IllegalArgumentException exception) {
             throw new ResponseStatusException(HttpStatus.NOT_FOUND, exception.getMessage());
         }
     }
 
+    /**
+     * Gets the locations nearest to a position, from the nearest one, with
+     * their distances in meters to this position.
+     *
+     * @param driver is the driver to get the locations for.
+     * @param latitude is the latitude of the position in degrees.
+     * @param longitude is the longitude of the position in degrees.
+     * @param radius is the maximum distance in meters of the locations, the
+     * nearest locations are returned whatever their distance when omitted.
+     * @param limit is the maximum number of locations to get, at most 100.
+     * @return the response containing a list of locations.
+     * @throws ResponseStatusException when the driver does not exist (404) or
+     * when the position, the radius or the limit is invalid (400).
+     */
+    @GetMapping(path = "/locations/nearby")
+    public ResponseEntity nearbyLocations(
+            @AuthenticatedDriver Driver driver,
+            @RequestParam("latitude") double latitude,
+            @RequestParam("longitude") double longitude,
+            @RequestParam(value = "radius", required = false) Double radius,
+            @RequestParam(value = "limit", defaultValue = "10", required = false) int limit
+    ) {
+        if (Math.abs(latitude) > 90 || Math.abs(longitude) > 180) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "The position is invalid.");
+        }
+        if ((radius != null && !(radius > 0)) || limit < 1 || limit > MAX_NEARBY_LOCATIONS) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "The radius or the limit is invalid.");
+        }
+        return ResponseEntity.ok(locationService.findNearestLocationsFor(
+                driver.getIdentifier(), latitude, longitude, radius, limit
+        ));
+    }
+
     /**
      * Gets a specific user location.
      *
-     * @param driverId is the identifier of the driver to get a location for.
+     * @param driver is the driver to get a location for.
      * @param identifier is the location id.
      * @return the response containing the location.
      * @throws ResponseStatusException when the driver or the asked location
@@ -85,15 +110,12 @@ public class LocationController {
      */
     @GetMapping(path = "/locations/{identifier}")
     public ResponseEntity location(
-            Authentication user,
-            @PathVariable("driverId") String driverId,
+            @AuthenticatedDriver Driver driver,
             @PathVariable("identifier") String identifier
     ) {
         try {
-            requireAuthenticatedOwner(user.getName(), driverId);
-            Driver driver = driverService.findById(driverId);
             Location location = locationService.findLocationFor(driver, identifier);
-            return ResponseEntity.ok(location);
+            return ResponseEntity.ok(LocationView.of(location));
         } catch (NullPointerException | IllegalArgumentException exception) {
             throw new ResponseStatusException(HttpStatus.NOT_FOUND, exception.getMessage());
         }
@@ -102,7 +124,7 @@ public class LocationController {
     /**
      * Updates the specified location data.
      *
-     * @param driverId is the identifier of the driver.
+     * @param driver is the driver.
      * @param identifier is the location id.
      * @param data is the data of the new location.
      * @return the response without content (204).
@@ -110,14 +132,11 @@ public class LocationController {
      */
     @PutMapping(path = "/locations/{identifier}")
     public ResponseEntity update(
-            Authentication user,
-            @PathVariable("driverId") String driverId,
+            @AuthenticatedDriver Driver driver,
             @PathVariable("identifier") String identifier,
             @Valid @RequestBody LocationDto data
     ) {
         try {
-            requireAuthenticatedOwner(user.getName(), driverId);
-            Driver driver = driverService.findById(driverId);
             locationService.updateLocationFor(driver, identifier, data);
             return new ResponseEntity(HttpStatus.NO_CONTENT);
         } catch (NullPointerException | IllegalArgumentException e) {
@@ -130,7 +149,7 @@ public class LocationController {
     /**
      * Deletes the specified location.
      *
-     * @param driverId is the identifier of the driver.
+     * @param driver is the driver.
      * @param identifier is the location id.
      * @return the response without content (204).
      * @throws ResponseStatusException if the driver or the location cannot be
@@ -139,13 +158,10 @@ public class LocationController {
      */
     @DeleteMapping(path = "/locations/{identifier}")
     public ResponseEntity delete(
-            Authentication user,
-            @PathVariable("driverId") String driverId,
+            @AuthenticatedDriver Driver driver,
             @PathVariable("identifier") String identifier
     ) {
         try {
-            requireAuthenticatedOwner(user.getName(), driverId);
-            Driver driver = driverService.findById(driverId);
             locationService.deleteLocationFor(driver, identifier);
             return new ResponseEntity(HttpStatus.NO_CONTENT);
         } catch (NullPointerException | IllegalArgumentException e) {
@@ -155,10 +171,4 @@ public class LocationController {
         }
     }
 
-    private static void requireAuthenticatedOwner(String authenticated, String requested) {
-        if (!authenticated.equals(requested)) {
-            throw new ResponseStatusException(HttpStatus.FORBIDDEN);
-        }
-    }
-
 }
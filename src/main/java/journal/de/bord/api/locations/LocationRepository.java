@@ -1,10 +1,67 @@
 package journal.de.bord.api.locations;
 
-import journal.de.bord.api.locations.Location;
-import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 
-public interface LocationRepository extends CrudRepository<Location, Long> {
+import javax.persistence.QueryHint;
+import java.util.List;
 
+import static org.hibernate.jpa.QueryHints.HINT_CACHEABLE;
+
+public interface LocationRepository extends JpaRepository<Location, Long> {
+
+    /**
+     * Tells if a location has the given name. The result is kept in the query
+     * cache until a location is inserted, updated or deleted.
+     */
+    @QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
     Boolean existsByName(String name);
 
-}
\ No newline at end of file
+    /**
+     * Finds the views of the driver's locations. The columns are read into
+     * the views so that the locations are not managed by the persistence
+     * context.
+     */
+    @Query("SELECT new journal.de.bord.api.locations.LocationView(l.id, l.name, l.latitude, l.longitude)\n" +
+            "FROM Location l WHERE l.driver.identifier = ?1")
+    List<LocationView> findViewsByDriverIdentifier(String driverIdentifier);
+
+    @Query("SELECT l.name FROM Location l WHERE l.driver.identifier = ?1")
+    List<String> findNamesByDriverIdentifier(String driverIdentifier);
+
+    /**
+     * Finds the driver's locations of the given cell ranges within the given
+     * latitude and longitude ranges. Each cell range is a range scan of the
+     * location (driver_identifier, cell) index, the coordinates filter the
+     * locations of the cells outside of the ranges.
+     */
+    @Query("SELECT new journal.de.bord.api.locations.LocationView(l.id, l.name, l.latitude, l.longitude)\n" +
+            "FROM Location l WHERE l.driver.identifier = ?1\n" +
+            "AND (l.cell BETWEEN ?2 AND ?3 OR l.cell BETWEEN ?4 AND ?5\n" +
+            "OR l.cell BETWEEN ?6 AND ?7 OR l.cell BETWEEN ?8 AND ?9)\n" +
+            "AND l.latitude BETWEEN ?10 AND ?11 AND l.longitude BETWEEN ?12 AND ?13")
+    List<LocationView> findByDriverIdentifierWithin(
+            String driverIdentifier,
+            long firstCell1,
+            long lastCell1,
+            long firstCell2,
+            long lastCell2,
+            long firstCell3,
+            long lastCell3,
+            long firstCell4,
+            long lastCell4,
+            double minLatitude,
+            double maxLatitude,
+            double minLongitude,
+            double maxLongitude
+    );
+
+    /**
+     * Finds the locations saved before their grid cell was stored.
+     */
+    @Query("SELECT l FROM Location l WHERE l.cell IS NULL")
+    List<Location> findUnlocated(Pageable pageable);
+
+}
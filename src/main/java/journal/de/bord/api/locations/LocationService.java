@@ -1,44 +1,174 @@
 package journal.de.bord.api.locations;
 
 import journal.de.bord.api.drivers.Driver;
+import journal.de.bord.api.drivers.DriverStatisticsService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.dao.DuplicateKeyException;
 import org.springframework.dao.NonTransientDataAccessException;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Objects;
+import java.util.Optional;
 
 @Service
 public class LocationService {
 
+    /**
+     * Is the radius in meters of the first area searched for the nearest
+     * locations. The radius grows until enough locations are found.
+     */
+    private static final double NEAREST_INITIAL_RADIUS = 1_000;
+
+    private static final int LOCATE_PAGE_SIZE = 500;
+
     @Autowired
     LocationRepository locationRepository;
 
+    @Autowired
+    DriverStatisticsService statisticsService;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    private Counter created;
+    private Counter updated;
+    private Counter deleted;
+
+    @PostConstruct
+    private void registerMeters() {
+        created = meterRegistry.counter("journal.locations", "operation", "create");
+        updated = meterRegistry.counter("journal.locations", "operation", "update");
+        deleted = meterRegistry.counter("journal.locations", "operation", "delete");
+    }
+
+    @Transactional(readOnly = true)
     public Location findById(Long locationId) {
         return locationRepository.findById(locationId).orElseThrow(
                 () -> new IllegalArgumentException(locationId + " is not a location id.")
         );
     }
 
+    @Transactional(readOnly = true)
     public Location findLocationFor(Driver driver, String identifier) {
         Objects.requireNonNull(driver, "\"driver\" argument is null");
         Objects.requireNonNull(identifier, "\"identifier\" argument is null");
         try {
-            Location result = driver.getLocationById(Long.parseLong(identifier));
-            if (result == null) {
-                throw new IllegalArgumentException("No location with id: " + identifier);
-            }
-            return result;
+            return findLocationFor(driver, Long.parseLong(identifier)).orElseThrow(
+                    () -> new IllegalArgumentException("No location with id: " + identifier)
+            );
         } catch (NumberFormatException exception) {
             throw new IllegalArgumentException("The id is invalid: " + identifier);
         }
     }
 
-    public List<Location> findAllLocationsFor(Driver driver) {
+    /**
+     * Finds one of the given driver's locations. The location is looked up by
+     * its primary key, which is served by the second-level cache, and its
+     * owner is checked afterwards so that the driver's locations are not
+     * loaded.
+     *
+     * @param driver is the driver owning the location.
+     * @param identifier is the location id.
+     * @return the location or an empty optional if the driver does not own a
+     * location with the given id.
+     * @throws NullPointerException when one of the arguments is null.
+     */
+    @Transactional(readOnly = true)
+    public Optional<Location> findLocationFor(Driver driver, Long identifier) {
         Objects.requireNonNull(driver, "\"driver\" argument is null");
-        return driver.getLocations();
+        Objects.requireNonNull(identifier, "\"identifier\" argument is null");
+        return locationRepository.findById(identifier)
+                .filter(location -> driver.getIdentifier().equals(location.getDriver().getIdentifier()));
+    }
+
+    /**
+     * Finds all the locations of the given driver. They are read by a query
+     * on the driver identifier, so that the driver is not loaded, directly
+     * into views so that the locations are not managed.
+     *
+     * @param driver is the driver owning the locations.
+     * @return the views of the driver's locations.
+     * @throws NullPointerException when the driver argument is null.
+     */
+    @Transactional(readOnly = true)
+    public List<LocationView> findAllLocationsFor(Driver driver) {
+        Objects.requireNonNull(driver, "\"driver\" argument is null");
+        return locationRepository.findViewsByDriverIdentifier(driver.getIdentifier());
+    }
+
+    /**
+     * Finds the driver's locations nearest to the given position, from the
+     * nearest one. When a radius is given only the locations within it are
+     * returned. Otherwise the searched area grows until it holds the number
+     * of requested locations so that only the locations around the position
+     * are read.
+     *
+     * @param driverId is the identifier of the driver owning the locations.
+     * @param latitude is the latitude of the position in degrees.
+     * @param longitude is the longitude of the position in degrees.
+     * @param radius is the maximum distance in meters or null.
+     * @param limit is the maximum number of locations to get.
+     * @return the locations with their distances to the position.
+     * @throws NullPointerException when the driver id is null.
+     */
+    @Transactional(readOnly = true)
+    public List<NearbyLocation> findNearestLocationsFor(
+            String driverId,
+            double latitude,
+            double longitude,
+            Double radius,
+            int limit
+    ) {
+        Objects.requireNonNull(driverId, "\"driverId\" argument is null");
+        double searched = radius == null ? NEAREST_INITIAL_RADIUS : radius;
+        while (true) {
+            GeoArea area = GeoArea.around(latitude, longitude, searched);
+            long[] cells = area.cellRanges();
+            List<NearbyLocation> found = new ArrayList<>();
+            for (LocationView location : locationRepository.findByDriverIdentifierWithin(
+                    driverId,
+                    cells[0], cells[1], cells[2], cells[3], cells[4], cells[5], cells[6], cells[7],
+                    area.getMinLatitude(),
+                    area.getMaxLatitude(),
+                    area.getMinLongitude(),
+                    area.getMaxLongitude()
+            )) {
+                double distance = GeoArea.distance(
+                        latitude, longitude, location.getLatitude(), location.getLongitude()
+                );
+                if (distance <= searched) {
+                    found.add(new NearbyLocation(location, distance));
+                }
+            }
+            if (radius != null || found.size() >= limit || searched >= GeoArea.MAX_DISTANCE) {
+                found.sort(Comparator.comparingDouble(NearbyLocation::getDistance));
+                return found.size() > limit ? found.subList(0, limit) : found;
+            }
+            searched = Math.min(searched * 4, GeoArea.MAX_DISTANCE);
+        }
+    }
+
+    /**
+     * Stores the grid cell of a page of the locations saved before it was
+     * stored.
+     *
+     * @return the number of located locations, zero when every location has
+     * its cell.
+     */
+    @Transactional
+    public int locateUnlocated() {
+        List<Location> locations = locationRepository.findUnlocated(PageRequest.of(0, LOCATE_PAGE_SIZE));
+        locations.forEach(Location::locate);
+        return locations.size();
     }
 
     public Boolean existsById(Long locationId) {
@@ -49,6 +179,7 @@ public class LocationService {
         return locationRepository.existsByName(name);
     }
 
+    @Transactional
     public Long createNewLocationFor(Driver driver, LocationDto data) {
         Objects.requireNonNull(driver, "\"driver\" argument is null");
         Objects.requireNonNull(data, "\"data\" argument is null");
@@ -61,9 +192,25 @@ public class LocationService {
         Location location = Location.from(data);
         location.setDriver(driver);
         Location saved = locationRepository.save(location);
+        statisticsService.locationCreated(driver.getIdentifier());
+        created.increment();
         return saved.getId();
     }
 
+    /**
+     * Updates one of the given driver's locations. The location is read and
+     * updated in the same transaction, the update is flushed so that a
+     * duplicated name is reported before the transaction commits.
+     *
+     * @param driver is the driver owning the location.
+     * @param identifier is the location id.
+     * @param data is the new location data.
+     * @throws NullPointerException when one of the arguments is null.
+     * @throws IllegalArgumentException when the driver does not own a
+     * location with the given id.
+     * @throws IllegalStateException when another location has the same name.
+     */
+    @Transactional
     public void updateLocationFor(Driver driver, String identifier, LocationDto data) {
         Objects.requireNonNull(driver, "\"driver\" argument is null");
         Objects.requireNonNull(identifier, "\"identifier\" argument is null");
@@ -71,7 +218,8 @@ public class LocationService {
         try {
             Location location = findLocationFor(driver, identifier);
             location.setValues(data);
-            locationRepository.save(location);
+            locationRepository.saveAndFlush(location);
+            updated.increment();
         } catch (DataIntegrityViolationException e) {
             String message = String.format(
                     "A location with the name \"%s\" already exist.",
@@ -81,12 +229,15 @@ public class LocationService {
         }
     }
 
+    @Transactional
     public void deleteLocationFor(Driver driver, String identifier) {
         Objects.requireNonNull(driver, "\"driver\" argument is null");
         Objects.requireNonNull(identifier, "\"identifier\" argument is null");
         try {
             Location location = findLocationFor(driver, identifier);
             locationRepository.delete(location);
+            statisticsService.locationDeleted(driver.getIdentifier());
+            deleted.increment();
         } catch (DataIntegrityViolationException e) {
             String message = String.format(
                     "Location with id %s cannot be deleted: %s",
@@ -0,0 +1,30 @@
+package journal.de.bord.api.locations;
+
+import lombok.Value;
+
+/**
+ * Is the read-only representation of a location returned by the API. It is
+ * built while the location is read so that its serialization does not use
+ * the persistence context.
+ */
+@Value
+public class LocationView {
+
+    public static LocationView of(Location location) {
+        return new LocationView(
+                location.getId(),
+                location.getName(),
+                location.getLatitude(),
+                location.getLongitude()
+        );
+    }
+
+    Long id;
+
+    String name;
+
+    Double latitude;
+
+    Double longitude;
+
+}
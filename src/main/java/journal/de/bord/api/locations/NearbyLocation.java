@@ -0,0 +1,23 @@
+package journal.de.bord.api.locations;
+
+import com.fasterxml.jackson.annotation.JsonUnwrapped;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * Is a location found around a position with its distance to this position.
+ */
+@Data
+@AllArgsConstructor
+public class NearbyLocation {
+
+    @JsonUnwrapped
+    private LocationView location;
+
+    /**
+     * Is the distance in meters between the location and the position it has
+     * been searched around.
+     */
+    private double distance;
+
+}
@@ -0,0 +1,63 @@
+package journal.de.bord.api.pagination;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.Objects;
+
+/**
+ * Represents the position of a record in a list ordered by moment and id. The
+ * cursor is given to the clients as an opaque string and lets the next records
+ * be read with an index range scan instead of an offset.
+ */
+@Data
+@AllArgsConstructor
+public class Cursor {
+
+    private static final String SEPARATOR = "|";
+
+    /**
+     * Decodes a cursor given by a client.
+     *
+     * @param value is the encoded cursor.
+     * @return the decoded cursor.
+     * @throws NullPointerException when the value argument is null.
+     * @throws IllegalArgumentException when the value is not a cursor.
+     */
+    public static Cursor decode(String value) {
+        Objects.requireNonNull(value, "\"value\" argument is null");
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(value), StandardCharsets.UTF_8);
+            int separator = decoded.indexOf(SEPARATOR);
+            if (separator < 0) {
+                throw new IllegalArgumentException("Invalid cursor: " + value);
+            }
+            return new Cursor(
+                    LocalDateTime.parse(decoded.substring(0, separator)),
+                    Long.parseLong(decoded.substring(separator + 1))
+            );
+        } catch (DateTimeParseException | IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + value);
+        }
+    }
+
+    /**
+     * The moment of the last record read.
+     */
+    private LocalDateTime moment;
+
+    /**
+     * The id of the last record read. It orders the records sharing a moment.
+     */
+    private Long id;
+
+    public String encode() {
+        String value = moment.toString() + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+}
@@ -0,0 +1,13 @@
+package journal.de.bord.api.rides;
+
+/**
+ * Thrown when the data of a ride cannot be used to write a ride. Either the
+ * stops are not owned by the driver or they do not form a valid ride.
+ */
+public class InvalidRideException extends RuntimeException {
+
+    public InvalidRideException(String message) {
+        super(message);
+    }
+
+}
@@ -3,34 +3,69 @@ package journal.de.bord.api.rides;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import journal.de.bord.api.drivers.Driver;
 import journal.de.bord.api.stops.Stop;
-import lombok.Data;
-import lombok.NoArgsConstructor;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+import org.hibernate.annotations.DynamicUpdate;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
 
 import javax.persistence.*;
 import javax.validation.constraints.NotNull;
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.Objects;
 
 /**
  * Represents a journey made with a car by a driver from one stop (departure) to an other (arrival). The driver can
  * specify the traffic condition and tell the system the difficulties he has encountered.
  */
 @Entity
-@Table(uniqueConstraints = {
-    @UniqueConstraint(columnNames = {
-        "departure_id",
-        "arrival_id",
-        "driver_identifier"
-    })
+@Table(
+    uniqueConstraints = {
+        @UniqueConstraint(columnNames = {
+            "departure_id",
+            "arrival_id",
+            "driver_identifier"
+        })
+    },
+    indexes = {
+        @Index(name = "ride_driver_departure_distance_index", columnList = "driver_identifier, departure_moment, distance"),
+        @Index(
+            name = "ride_driver_departure_cumulative_index",
+            columnList = "driver_identifier, departure_moment, id, cumulative_rides, cumulative_distance"
+        )
+    }
+)
+@NamedEntityGraph(name = Ride.RIDE_STOPS, attributeNodes = {
+    @NamedAttributeNode(value = "departure", subgraph = "stop"),
+    @NamedAttributeNode(value = "arrival", subgraph = "stop")
+}, subgraphs = {
+    @NamedSubgraph(name = "stop", attributeNodes = @NamedAttributeNode("location"))
 })
-@Data
+@DynamicUpdate
+@Getter
+@Setter
+@ToString
 public class Ride {
 
+    /**
+     * Is the name of the graph fetching a ride with its stops and their
+     * locations.
+     */
+    public static final String RIDE_STOPS = "Ride.stops";
+
     @Id
     @GeneratedValue(generator = "ride_sequence_generator", strategy = GenerationType.SEQUENCE)
-    @SequenceGenerator(
+    @GenericGenerator(
             name = "ride_sequence_generator",
-            sequenceName = "ride_sequence",
-            allocationSize = 1
+            strategy = "org.hibernate.id.enhanced.SequenceStyleGenerator",
+            parameters = {
+                    @Parameter(name = "sequence_name", value = "ride_sequence"),
+                    @Parameter(name = "increment_size", value = "50"),
+                    @Parameter(name = "optimizer", value = "hilo")
+            }
     )
     private Long id;
 
@@ -40,6 +75,7 @@ public class Ride {
     @NotNull
     @OneToOne(cascade = CascadeType.ALL)
     @JoinColumn(name = "departure_id", referencedColumnName = "id")
+    @ToString.Exclude
     private Stop departure;
 
     /**
@@ -47,14 +83,16 @@ public class Ride {
      */
     @OneToOne(cascade = CascadeType.ALL)
     @JoinColumn(name = "arrival_id", referencedColumnName = "id")
+    @ToString.Exclude
     private Stop arrival;
 
     /**
      * Is the person who was driving the vehicle during this ride.
      */
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn
     @JsonIgnore
+    @ToString.Exclude
     private Driver driver;
 
     @NotNull
@@ -66,6 +104,71 @@ public class Ride {
      */
     private String comment;
 
+    /**
+     * Is the distance of this ride accounted for in the driver statistics. It
+     * is used to update the statistics when the ride or its stops are edited.
+     */
+    @Transient
+    @JsonIgnore
+    private Long recordedDistance;
+
+    /*
+     * The departure moment, the distance and the duration in seconds are
+     * copies of the values computed from the stops. They are stored so that
+     * the distances are summed from the (driver, departure moment, distance)
+     * index without joining the stops. They are set by measure().
+     */
+
+    @Column(name = "departure_moment")
+    @Setter(AccessLevel.NONE)
+    @JsonIgnore
+    private LocalDateTime storedDepartureMoment;
+
+    @Column(name = "distance")
+    @Setter(AccessLevel.NONE)
+    @JsonIgnore
+    private Long storedDistance;
+
+    @Column(name = "duration")
+    @Setter(AccessLevel.NONE)
+    @JsonIgnore
+    private Long storedDuration;
+
+    /*
+     * The cumulative rides and distance are the number of rides and the
+     * distance of the driver's rides up to this one included, the rides being
+     * ordered by stored departure moment and id. The rides and the distance
+     * of a period are the difference between the cumulative values of the
+     * last ride of the period and of the last ride before it. They are
+     * maintained by the DriverStatisticsService with bulk updates, the rides
+     * are dynamically updated so that a loaded ride does not write back stale
+     * cumulative values.
+     */
+
+    @Column(name = "cumulative_rides")
+    @JsonIgnore
+    private Long cumulativeRides;
+
+    @Column(name = "cumulative_distance")
+    @JsonIgnore
+    private Long cumulativeDistance;
+
+    /**
+     * Is the departure moment at which this ride is accounted for in the
+     * cumulative values and the statistics buckets of the driver's rides.
+     */
+    @Transient
+    @JsonIgnore
+    private LocalDateTime recordedDepartureMoment;
+
+    /**
+     * Is the traffic condition this ride is accounted for in the statistics
+     * buckets of its driver.
+     */
+    @Transient
+    @JsonIgnore
+    private TrafficCondition recordedTrafficCondition;
+
     public Ride(@NotNull Stop departure, Driver driver) {
         this.departure = departure;
         this.arrival = null;
@@ -112,10 +215,102 @@ public class Ride {
         return departure.getMoment();
     }
 
+    /**
+     * Gets the distance driven during this ride. A ride that is not done has
+     * no distance yet.
+     *
+     * @return the difference between the arrival and departure odometer values.
+     */
+    @JsonIgnore
+    public long getDistance() {
+        return isDone() ? arrival.getOdometerValue() - departure.getOdometerValue() : 0L;
+    }
+
+    /**
+     * Gets the time spent driving during this ride. A ride that is not done
+     * has no duration yet.
+     *
+     * @return the time between the departure and the arrival.
+     */
+    @JsonIgnore
+    public Duration getDuration() {
+        return isDone() ? Duration.between(departure.getMoment(), arrival.getMoment()) : Duration.ZERO;
+    }
+
+    /**
+     * Stores the departure moment, the distance and the duration computed
+     * from the stops of this ride. It should be called when the stops are
+     * set or edited, the ride row is not written otherwise.
+     */
+    public void measure() {
+        measure(departure, arrival);
+    }
+
+    /**
+     * Stores the departure moment, the distance and the duration computed
+     * from the given stops. It is used when this ride references stops that
+     * are not loaded and that hold the same values as the given ones.
+     *
+     * @param departure is the departure of this ride.
+     * @param arrival is the arrival of this ride, or null.
+     * @throws NullPointerException when the departure is null.
+     */
+    public void measure(Stop departure, Stop arrival) {
+        Objects.requireNonNull(departure, "\"departure\" argument is null");
+        storedDepartureMoment = departure.getMoment();
+        if (arrival == null) {
+            storedDistance = 0L;
+            storedDuration = 0L;
+        } else {
+            storedDistance = arrival.getOdometerValue() - departure.getOdometerValue();
+            storedDuration = Duration.between(departure.getMoment(), arrival.getMoment()).getSeconds();
+        }
+    }
+
     @JsonIgnore
     public boolean isValid() {
         return !isDone() || (arrival.isAfter(departure)
                 && arrival.getOdometerValue() > departure.getOdometerValue());
     }
 
+    @PostLoad
+    private void recordDistance() {
+        recordedDistance = getDistance();
+        recordedDepartureMoment = storedDepartureMoment;
+        recordedTrafficCondition = trafficCondition;
+    }
+
+    @PrePersist
+    private void measureUnmeasured() {
+        if (storedDepartureMoment == null) {
+            measure();
+        }
+    }
+
+    /**
+     * Tells if the given object is the same ride. Two rides are the same
+     * when they have the same id, a ride without id is only equal to itself.
+     * The id of the other ride is read with its getter so that a proxy is
+     * compared without being initialized.
+     */
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof Ride)) {
+            return false;
+        }
+        return id != null && id.equals(((Ride) other).getId());
+    }
+
+    /**
+     * Gets the same hash code for all the rides, so that it does not change
+     * when the ride is saved and gets its id.
+     */
+    @Override
+    public int hashCode() {
+        return Ride.class.hashCode();
+    }
+
 }
\ No newline at end of file
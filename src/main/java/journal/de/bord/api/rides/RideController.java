@@ -1,20 +1,21 @@
 package journal.de.bord.api.rides;
 
+import journal.de.bord.api.drivers.AuthenticatedDriver;
 import journal.de.bord.api.drivers.Driver;
-import journal.de.bord.api.drivers.DriverService;
-import journal.de.bord.api.stops.StopService;
+import journal.de.bord.api.pagination.Cursor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
 
 import javax.validation.Valid;
 import java.util.List;
+import java.util.stream.Collectors;
 
 /**
  * The controller handle the REST interface exposing the rides resources.
@@ -26,48 +27,31 @@ public class RideController {
     private static final String RIDES_RESOURCE_PATH = "/api/drivers/{pseudonym}/rides";
     private static final String RIDE_RESOURCE_PATH = "/api/drivers/{pseudonym}/rides/{identifier}";
 
-    @Autowired
-    private DriverService driverService;
-
     @Autowired
     private RideService rideService;
 
-    @Autowired
-    private StopService stopService;
-
     /**
      * Creates a new ride.
      *
-     * @param driverId is the id of the driver to create a new drive for.
+     * @param driver is the driver to create a new drive for.
      * @param data is the data describing the ride to create.
      * @return the response without content (created status, 201).
      * @throws ResponseStatusException when the driver does not exist (404) or
-     * when the driving is currently driving (422).
+     * when the stops are not owned by the driver or do not form a valid ride
+     * (422).
      */
     @PostMapping(path = "/rides")
     public ResponseEntity create(
-        Authentication user,
-        @PathVariable("driverId") String driverId,
+        @AuthenticatedDriver Driver driver,
         @Valid @RequestBody RideDto data
     ) {
         try {
-            requireAuthenticatedOwner(user.getName(), driverId);
-            if (data.getDeparture() == data.getArrival()) {
-                throw new ResponseStatusException(HttpStatus.UNPROCESSABLE_ENTITY);
-            }
-            Driver driver = driverService.findById(driverId);
-            if (driver.ownsRideStops(data)) {
-                Ride ride = stopService.makeRide(data);
-                if (!ride.isValid()) {
-                    throw new ResponseStatusException(HttpStatus.UNPROCESSABLE_ENTITY, "Invalid ride.");
-                }
-                Long id = rideService.save(driver, ride);
-                return new ResponseEntity(new Object() {
-                    public final Long rideId = id;
-                }, HttpStatus.CREATED);
-            } else {
-                throw new ResponseStatusException(HttpStatus.UNPROCESSABLE_ENTITY);
-            }
+            Long id = rideService.create(driver, data);
+            return new ResponseEntity(new Object() {
+                public final Long rideId = id;
+            }, HttpStatus.CREATED);
+        } catch (InvalidRideException exception) {
+            throw new ResponseStatusException(HttpStatus.UNPROCESSABLE_ENTITY, exception.getMessage());
         } catch (NullPointerException | IllegalArgumentException exception) {
             throw new ResponseStatusException(HttpStatus.NOT_FOUND);
         } catch (IllegalStateException exception) {
@@ -78,51 +62,58 @@ public class RideController {
     /**
      * Gets all the rides for the specified driver.
      *
-     * @param driverId is the id of the driver to get the rides for.
+     * @param driver is the driver to get the rides for.
      * @return the response containing a list of rides.
      * @throws ResponseStatusException 404 the specified driver does not exist.
      */
     @GetMapping(path = "/rides/{identifier}")
     public ResponseEntity ride(
-        Authentication user,
-        @PathVariable("driverId") String driverId,
+        @AuthenticatedDriver Driver driver,
         @PathVariable("identifier") String identifier
     ) {
         try {
-            requireAuthenticatedOwner(user.getName(), driverId);
-            Driver driver = driverService.findById(driverId);
             Ride ride = rideService.findRideFor(driver, identifier);
-            return ResponseEntity.ok(ride);
+            return ResponseEntity.ok(RideView.of(ride));
         } catch (NullPointerException | IllegalArgumentException exception) {
             throw new ResponseStatusException(HttpStatus.NOT_FOUND, exception.getMessage());
         }
     }
 
     /**
-     * Gets all the rides done for the specified driver.
+     * Gets all the rides done for the specified driver. The rides are read
+     * by page when no cursor is given. When a cursor is given, even empty, the
+     * rides following it are read and the response contains the cursor of the
+     * next rides. This does not count the driver's rides. At most
+     * {@link RideService#MAX_RIDES} rides are read at once.
      *
-     * @param driverId is the id of the driver to get the rides for.
+     * @param driver is the driver to get the rides for.
+     * @param cursor is the cursor returned with the previous rides, empty to
+     * get the most recent rides.
      * @return the response containing a list of rides.
      * @throws ResponseStatusException 404 the specified driver does not exist.
+     * Or 400 when the cursor or the size is invalid.
      */
     @GetMapping(path = "/rides")
     public ResponseEntity rides(
-            Authentication user,
-            @PathVariable("driverId") String driverId,
+            @AuthenticatedDriver Driver driver,
             @RequestParam(value = "page", defaultValue = "0", required = false) int page,
-            @RequestParam(value = "size", defaultValue = "10", required = false) int size
+            @RequestParam(value = "size", defaultValue = "10", required = false) int size,
+            @RequestParam(value = "cursor", required = false) String cursor
     ) {
+        if (size < 1) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "The size should be positive.");
+        }
         try {
-            if (!driverService.exist(driverId)) {
-                String msg = String.format("Unknown driver with id: %s.", driverId);
-                throw new ResponseStatusException(HttpStatus.NOT_FOUND, msg);
+            if (cursor != null) {
+                return ResponseEntity.ok(ridesAfter(driver.getIdentifier(), cursor, size));
             }
-            requireAuthenticatedOwner(user.getName(), driverId);
             Sort sort = Sort.by("departure.moment").descending();
-            PageRequest pageRequest = PageRequest.of(page, size, sort);
-            Page<Ride> ridesPage = rideService.findAllRidesFor(driverId, pageRequest);
+            PageRequest pageRequest = PageRequest.of(page, Math.min(size, RideService.MAX_RIDES), sort);
+            Page<Ride> ridesPage = rideService.findAllRidesFor(driver.getIdentifier(), pageRequest);
             return ResponseEntity.ok(new Object() {
-                public final List<Ride> rides = ridesPage.getContent();
+                public final List<RideView> rides = ridesPage.getContent().stream()
+                        .map(RideView::of)
+                        .collect(Collectors.toList());
                 public final int totalPages = ridesPage.getTotalPages();
                 public final boolean isLastPage = ridesPage.isLast();
             });
@@ -131,10 +122,30 @@ public class RideController {
         }
     }
 
+    private Object ridesAfter(String driverId, String cursor, int size) {
+        Cursor after;
+        try {
+            after = cursor.isEmpty() ? null : Cursor.decode(cursor);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+        Slice<Ride> ridesSlice = rideService.findRidesFor(driverId, after, size);
+        List<Ride> content = ridesSlice.getContent();
+        Ride last = content.isEmpty() ? null : content.get(content.size() - 1);
+        return new Object() {
+            public final List<RideView> rides = content.stream()
+                    .map(RideView::of)
+                    .collect(Collectors.toList());
+            public final String next = ridesSlice.hasNext()
+                    ? new Cursor(last.getStoredDepartureMoment(), last.getId()).encode()
+                    : null;
+        };
+    }
+
     /**
      * Replaces the specified ride with the given one.
      *
-     * @param driverId is the id of the driver to edit a ride for.
+     * @param driver is the driver to edit a ride for.
      * @param identifier is the id of the ride to edit.
      * @param data is the data of the new ride.
      * @return the response without content (204).
@@ -143,28 +154,15 @@ public class RideController {
      */
     @PutMapping(path = "/rides/{identifier}")
     public ResponseEntity update(
-        Authentication user,
-        @PathVariable("driverId") String driverId,
+        @AuthenticatedDriver Driver driver,
         @PathVariable("identifier") String identifier,
         @Valid @RequestBody RideDto data
     ) {
         try {
-            requireAuthenticatedOwner(user.getName(), driverId);
-            if (data.getDeparture() == data.getArrival()) {
-                throw new ResponseStatusException(HttpStatus.UNPROCESSABLE_ENTITY);
-            }
-            Driver driver = driverService.findById(driverId);
-            if (driver.ownsRideStops(data)) {
-                Ride ride = rideService.findRideFor(driver, identifier);
-                ride = stopService.updateRide(ride, data);
-                if (!ride.isValid()) {
-                    throw new ResponseStatusException(HttpStatus.UNPROCESSABLE_ENTITY);
-                }
-                rideService.save(driver, ride);
-                return new ResponseEntity(HttpStatus.NO_CONTENT);
-            } else {
-                throw new ResponseStatusException(HttpStatus.UNPROCESSABLE_ENTITY);
-            }
+            rideService.update(driver, identifier, data);
+            return new ResponseEntity(HttpStatus.NO_CONTENT);
+        } catch (InvalidRideException exception) {
+            throw new ResponseStatusException(HttpStatus.UNPROCESSABLE_ENTITY, exception.getMessage());
         } catch (NullPointerException | IllegalArgumentException exception) {
             throw new ResponseStatusException(HttpStatus.NOT_FOUND, exception.getMessage());
         } catch (IllegalStateException exception) {
@@ -175,7 +173,7 @@ public class RideController {
     /**
      * Deletes the specified ride.
      *
-     * @param driverId is the pseudonym of the driver.
+     * @param driver is the driver.
      * @param identifier is the ride id.
      * @return the response without content (204).
      * @throws ResponseStatusException if the driver or the ride cannot be
@@ -183,13 +181,10 @@ public class RideController {
      */
     @DeleteMapping(path = "/rides/{identifier}")
     public ResponseEntity delete(
-        Authentication user,
-        @PathVariable("driverId") String driverId,
+        @AuthenticatedDriver Driver driver,
         @PathVariable("identifier") String identifier
     ) {
         try {
-            requireAuthenticatedOwner(user.getName(), driverId);
-            Driver driver = driverService.findById(driverId);
             rideService.deleteRideFor(driver, identifier);
             return new ResponseEntity(HttpStatus.NO_CONTENT);
         } catch (NullPointerException | IllegalArgumentException e) {
@@ -197,10 +192,4 @@ public class RideController {
         }
     }
 
-    private static void requireAuthenticatedOwner(String authenticated, String requested) {
-        if (!authenticated.equals(requested)) {
-            throw new ResponseStatusException(HttpStatus.FORBIDDEN);
-        }
-    }
-
 }
@@ -0,0 +1,22 @@
+package journal.de.bord.api.rides;
+
+import lombok.Value;
+
+import java.time.LocalDateTime;
+
+/**
+ * Holds the measures stored by a ride, without its stops. The duration is in
+ * seconds.
+ */
+@Value
+public class RideMeasure {
+
+    LocalDateTime departureMoment;
+
+    Long distance;
+
+    Long duration;
+
+    TrafficCondition trafficCondition;
+
+}
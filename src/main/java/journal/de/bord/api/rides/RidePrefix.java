@@ -0,0 +1,20 @@
+package journal.de.bord.api.rides;
+
+import lombok.Value;
+
+/**
+ * Holds the cumulative number of rides and distance of a driver up to a ride.
+ */
+@Value
+public class RidePrefix {
+
+    /**
+     * Is the prefix before the first ride of a driver.
+     */
+    public static final RidePrefix ZERO = new RidePrefix(0L, 0L);
+
+    Long rides;
+
+    Long distance;
+
+}
@@ -2,11 +2,131 @@ package journal.de.bord.api.rides;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.PagingAndSortingRepository;
 
+import javax.persistence.QueryHint;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static journal.de.bord.api.rides.Ride.RIDE_STOPS;
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
+
 public interface RideRepository extends PagingAndSortingRepository<Ride, Long> {
 
+    /*
+     * The rides are read with their stops and the stops locations in the same
+     * statement. Otherwise each ride issues a select for its departure, its
+     * arrival and both locations.
+     */
+
+    @EntityGraph(RIDE_STOPS)
     Page<Ride> findByDriverIdentifier(String driverIdentifier, Pageable pageable);
 
-}
\ No newline at end of file
+    /*
+     * The keyset queries filter and order on the departure moment stored in
+     * the ride so that the whole (driver, departure moment, id) key is read
+     * from the leading columns of the cumulative index. Ordering on the
+     * departure stop moment would need a sort of the rides sharing a moment
+     * since the ride id is not part of the stop index. Returning a slice
+     * avoids the count query issued for pages.
+     */
+
+    @EntityGraph(RIDE_STOPS)
+    @Query("SELECT r FROM Ride r\n" +
+            "WHERE r.driver.identifier = ?1\n" +
+            "ORDER BY r.storedDepartureMoment DESC, r.id DESC")
+    Slice<Ride> findLatestByDriverIdentifier(String driverIdentifier, Pageable pageable);
+
+    @EntityGraph(RIDE_STOPS)
+    @Query("SELECT r FROM Ride r\n" +
+            "WHERE r.driver.identifier = ?1\n" +
+            "AND (r.storedDepartureMoment < ?2 OR (r.storedDepartureMoment = ?2 AND r.id < ?3))\n" +
+            "ORDER BY r.storedDepartureMoment DESC, r.id DESC")
+    Slice<Ride> findByDriverIdentifierBefore(
+            String driverIdentifier,
+            LocalDateTime moment,
+            Long id,
+            Pageable pageable
+    );
+
+    /*
+     * The stream is read forward only from a database cursor, by fetches of
+     * 500 rows, so that it does not hold the whole history in memory. It has
+     * to be consumed inside a transaction.
+     */
+
+    @QueryHints({
+            @QueryHint(name = HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HINT_READONLY, value = "true")
+    })
+    @Query("SELECT r FROM Ride r\n" +
+            "JOIN FETCH r.departure d JOIN FETCH d.location\n" +
+            "LEFT JOIN FETCH r.arrival a LEFT JOIN FETCH a.location\n" +
+            "WHERE r.driver.identifier = ?1\n" +
+            "ORDER BY d.moment ASC, r.id ASC")
+    Stream<Ride> streamByDriverIdentifier(String driverIdentifier);
+
+    // The rides that have not been measured yet are skipped.
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT new journal.de.bord.api.rides.RideMeasure(\n" +
+            "r.storedDepartureMoment, r.storedDistance, r.storedDuration, r.trafficCondition)\n" +
+            "FROM Ride r\n" +
+            "WHERE r.driver.identifier = ?1 AND r.storedDepartureMoment IS NOT NULL")
+    Stream<RideMeasure> streamMeasuresByDriverIdentifier(String driverIdentifier);
+
+    // The rides saved before the cumulative values were stored have none.
+    boolean existsByDriverIdentifierAndCumulativeRidesIsNull(String driverIdentifier);
+
+    @EntityGraph(RIDE_STOPS)
+    Optional<Ride> findByIdAndDriverIdentifier(Long id, String driverIdentifier);
+
+    List<Ride> findByDepartureIdOrArrivalId(Long departureId, Long arrivalId);
+
+    /*
+     * The prefixes are read and shifted along the (driver, departure moment,
+     * id) order of the cumulative index. The first prefix found before a
+     * position is the cumulative value of the ride preceding it. They are
+     * only written by bulk updates so that the rides loaded in the persistence
+     * context, which may hold stale values, never write them back.
+     */
+
+    @Query("SELECT new journal.de.bord.api.rides.RidePrefix(r.cumulativeRides, r.cumulativeDistance)\n" +
+            "FROM Ride r\n" +
+            "WHERE r.driver.identifier = ?1\n" +
+            "AND (r.storedDepartureMoment < ?2 OR (r.storedDepartureMoment = ?2 AND r.id < ?3))\n" +
+            "ORDER BY r.storedDepartureMoment DESC, r.id DESC")
+    List<RidePrefix> findPrefixesBefore(String driverIdentifier, LocalDateTime moment, Long id, Pageable pageable);
+
+    @Query("SELECT new journal.de.bord.api.rides.RidePrefix(r.cumulativeRides, r.cumulativeDistance)\n" +
+            "FROM Ride r\n" +
+            "WHERE r.driver.identifier = ?1\n" +
+            "ORDER BY r.storedDepartureMoment DESC, r.id DESC")
+    List<RidePrefix> findLatestPrefixes(String driverIdentifier, Pageable pageable);
+
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Ride r SET r.cumulativeRides = ?2, r.cumulativeDistance = ?3 WHERE r.id = ?1")
+    int setPrefix(Long id, Long rides, Long distance);
+
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Ride r\n" +
+            "SET r.cumulativeRides = r.cumulativeRides + ?4, r.cumulativeDistance = r.cumulativeDistance + ?5\n" +
+            "WHERE r.driver.identifier = ?1 AND r.id <> ?3\n" +
+            "AND (r.storedDepartureMoment > ?2 OR (r.storedDepartureMoment = ?2 AND r.id > ?3))")
+    int shiftPrefixesAfter(String driverIdentifier, LocalDateTime moment, Long id, long rides, long distance);
+
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Ride r\n" +
+            "SET r.cumulativeRides = r.cumulativeRides + ?4, r.cumulativeDistance = r.cumulativeDistance + ?5\n" +
+            "WHERE r.driver.identifier = ?1\n" +
+            "AND (r.storedDepartureMoment > ?2 OR (r.storedDepartureMoment = ?2 AND r.id >= ?3))")
+    int shiftPrefixesFrom(String driverIdentifier, LocalDateTime moment, Long id, long rides, long distance);
+
+}
@@ -5,25 +5,59 @@ import journal.de.bord.api.stops.StopDto;
 import journal.de.bord.api.drivers.Driver;
 import journal.de.bord.api.locations.Location;
 import journal.de.bord.api.stops.Stop;
-import journal.de.bord.api.drivers.DriverRepository;
+import journal.de.bord.api.stops.StopRepository;
+import journal.de.bord.api.drivers.DriverService;
+import journal.de.bord.api.drivers.DriverStatisticsService;
+import journal.de.bord.api.pagination.Cursor;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.dao.NonTransientDataAccessException;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.annotation.PostConstruct;
 
 import java.util.*;
 
 @Service
 public class RideService {
 
+    /**
+     * Is the maximum number of rides read at once.
+     */
+    public static final int MAX_RIDES = 100;
+
     @Autowired
     private RideRepository rideRepository;
 
     @Autowired
-    private DriverRepository driverRepository;
+    private StopRepository stopRepository;
+
+    @Autowired
+    private DriverStatisticsService statisticsService;
+
+    @Autowired
+    private DriverService driverService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private Counter created;
+    private Counter updated;
+    private Counter deleted;
+
+    @PostConstruct
+    private void registerMeters() {
+        created = meterRegistry.counter("journal.rides", "operation", "create");
+        updated = meterRegistry.counter("journal.rides", "operation", "update");
+        deleted = meterRegistry.counter("journal.rides", "operation", "delete");
+    }
 
     /**
      * Finds one of the specified driver's ride by id.
@@ -35,15 +69,15 @@ public class RideService {
      * a parsable long.
      * @throws NullPointerException if the id is null.
      */
+    @Transactional(readOnly = true)
     public Ride findRideFor(Driver driver, String identifier) {
         Objects.requireNonNull(driver, "\"driver\" argument is null");
         Objects.requireNonNull(identifier, "\"identifier\" argument is null");
         try {
-            Ride result = driver.getRideById(Long.parseLong(identifier));
-            if (result == null) {
-                throw new IllegalArgumentException("No ride with id: " + identifier);
-            }
-            return result;
+            return rideRepository.findByIdAndDriverIdentifier(
+                    Long.parseLong(identifier),
+                    driver.getIdentifier()
+            ).orElseThrow(() -> new IllegalArgumentException("No ride with id: " + identifier));
         } catch (NumberFormatException exception) {
             throw new IllegalArgumentException("The id is invalid: " + identifier);
         }
@@ -58,18 +92,125 @@ public class RideService {
      * exist.
      * @throws NullPointerException when the driver is null.
      */
+    @Transactional(readOnly = true)
     public Page<Ride> findAllRidesFor(String driverId, Pageable pageable) {
         Objects.requireNonNull(driverId, "\"driverId\" argument is null");
         Objects.requireNonNull(pageable, "\"pageable\" argument is null");
         return rideRepository.findByDriverIdentifier(driverId, pageable);
     }
 
+    /**
+     * Gets a slice of the rides of the specified driver ordered from the most
+     * recent departure to the oldest one.
+     *
+     * @param driverId is the identifier of the driver to get rides for.
+     * @param after is the position of the last ride read or null to get the
+     * most recent rides.
+     * @param size is the maximum number of rides to get, it cannot exceed
+     * {@link #MAX_RIDES}.
+     * @return the slice of rides following the given position.
+     * @throws NullPointerException when the driver id is null.
+     * @throws IllegalArgumentException when the size is lower than one.
+     */
+    @Transactional(readOnly = true)
+    public Slice<Ride> findRidesFor(String driverId, Cursor after, int size) {
+        Objects.requireNonNull(driverId, "\"driverId\" argument is null");
+        PageRequest pageRequest = PageRequest.of(0, Math.min(size, MAX_RIDES));
+        if (after == null) {
+            return rideRepository.findLatestByDriverIdentifier(driverId, pageRequest);
+        } else {
+            return rideRepository.findByDriverIdentifierBefore(
+                    driverId,
+                    after.getMoment(),
+                    after.getId(),
+                    pageRequest
+            );
+        }
+    }
+
+    /**
+     * Creates a new ride for the given driver. The ride stops are read with a
+     * single query scoped to the driver and the ride is inserted in the same
+     * transaction.
+     *
+     * @param driver is the driver to create a ride for.
+     * @param data is the data describing the ride to create.
+     * @return the id of the created ride.
+     * @throws NullPointerException when one of the arguments is null.
+     * @throws InvalidRideException when the stops are not owned by the driver
+     * or when they do not form a valid ride.
+     * @throws IllegalStateException when the ride cannot be saved.
+     */
+    @Transactional
+    public Long create(Driver driver, RideDto data) {
+        Objects.requireNonNull(driver, "\"driver\" argument is null");
+        Objects.requireNonNull(data, "\"data\" argument is null");
+        Ride ride = new Ride();
+        setStops(ride, driver, data);
+        if (data.getTrafficCondition() != null) {
+            ride.setTrafficCondition(data.getTrafficCondition());
+        }
+        ride.setComment(data.getComment());
+        Long id = save(driver, ride);
+        created.increment();
+        return id;
+    }
+
+    /**
+     * Replaces the specified ride of the given driver.
+     *
+     * @param driver is the driver owning the ride.
+     * @param identifier is the id of the ride to replace.
+     * @param data is the data of the new ride.
+     * @throws NullPointerException when one of the arguments is null.
+     * @throws IllegalArgumentException when the ride does not exist.
+     * @throws InvalidRideException when the stops are not owned by the driver
+     * or when they do not form a valid ride.
+     * @throws IllegalStateException when the ride cannot be saved.
+     */
+    @Transactional
+    public void update(Driver driver, String identifier, RideDto data) {
+        Objects.requireNonNull(data, "\"data\" argument is null");
+        Ride ride = findRideFor(driver, identifier);
+        setStops(ride, driver, data);
+        ride.setTrafficCondition(data.getTrafficCondition());
+        ride.setComment(data.getComment());
+        save(driver, ride);
+        updated.increment();
+    }
+
+    private void setStops(Ride ride, Driver driver, RideDto data) {
+        if (data.getDeparture().equals(data.getArrival())) {
+            throw new InvalidRideException("The departure and the arrival are the same stop.");
+        }
+        List<Long> ids = data.getArrival() == null
+                ? Collections.singletonList(data.getDeparture())
+                : Arrays.asList(data.getDeparture(), data.getArrival());
+        Map<Long, Stop> stops = new HashMap<>();
+        for (Stop stop : stopRepository.findByDriverIdentifierAndIdIn(driver.getIdentifier(), ids)) {
+            stops.put(stop.getId(), stop);
+        }
+        if (stops.size() != ids.size()) {
+            throw new InvalidRideException("The ride stops are not owned by the driver.");
+        }
+        ride.setDeparture(stops.get(data.getDeparture()));
+        ride.setArrival(data.getArrival() == null ? null : stops.get(data.getArrival()));
+        if (!ride.isValid()) {
+            throw new InvalidRideException("Invalid ride.");
+        }
+        ride.measure();
+    }
+
+    @Transactional
     public Long save(Driver driver, Ride ride) {
         Objects.requireNonNull(driver, "\"driver\" argument is null");
         Objects.requireNonNull(ride, "\"ride\" argument is null");
         try {
+            boolean created = ride.getId() == null;
             ride.setDriver(driver);
             rideRepository.save(ride);
+            statisticsService.rideSaved(ride, created);
+            driverService.rideSaved(ride, created);
             return ride.getId();
         } catch (NonTransientDataAccessException e) {
             throw new IllegalStateException();
@@ -84,19 +225,18 @@ public class RideService {
      * exist or the ride id doesn't match any records.
      * @throws NumberFormatException if the string does not contain a parsable long.
      */
+    @Transactional
     public void deleteRideFor(Driver driver, String identifier) {
         Objects.requireNonNull(driver, "\"driver\" argument is null");
         Objects.requireNonNull(identifier, "\"identifier\" argument is null");
         try {
-            Ride ride = driver.getRideById(Long.parseLong(identifier));
-            if (ride == null) {
-                throw new IllegalArgumentException("Not found: " + identifier);
-            }
+            Ride ride = findRideFor(driver, identifier);
+            driverService.rideDeleted(ride);
             rideRepository.delete(ride);
+            statisticsService.rideDeleted(ride);
+            deleted.increment();
         } catch (DataIntegrityViolationException e) {
             throw new IllegalStateException();
-        } catch (NumberFormatException e) {
-            throw new IllegalArgumentException("Invalid identifier: " + identifier);
         }
     }
 
@@ -0,0 +1,33 @@
+package journal.de.bord.api.rides;
+
+import journal.de.bord.api.stops.StopView;
+import lombok.Value;
+
+/**
+ * Is the read-only representation of a ride returned by the API, with its
+ * stops. The arrival is null while the ride is not done.
+ */
+@Value
+public class RideView {
+
+    public static RideView of(Ride ride) {
+        return new RideView(
+                ride.getId(),
+                StopView.of(ride.getDeparture()),
+                ride.getArrival() == null ? null : StopView.of(ride.getArrival()),
+                ride.getTrafficCondition(),
+                ride.getComment()
+        );
+    }
+
+    Long id;
+
+    StopView departure;
+
+    StopView arrival;
+
+    TrafficCondition trafficCondition;
+
+    String comment;
+
+}
@@ -5,8 +5,12 @@ import journal.de.bord.api.drivers.Driver;
 import journal.de.bord.api.locations.Location;
 import journal.de.bord.api.locations.LocationDto;
 import lombok.AllArgsConstructor;
-import lombok.Data;
+import lombok.Getter;
 import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
 
 import javax.persistence.*;
 import javax.validation.Valid;
@@ -19,15 +23,23 @@ import java.time.LocalDateTime;
  * registered.
  */
 @Entity
-@Table(uniqueConstraints = {
-    @UniqueConstraint(columnNames = {
-        "moment",
-        "odometerValue",
-        "driver_identifier",
-        "location"
-    })
-})
-@Data
+@Table(
+    uniqueConstraints = {
+        @UniqueConstraint(columnNames = {
+            "moment",
+            "odometerValue",
+            "driver_identifier",
+            "location"
+        })
+    },
+    indexes = {
+        @Index(name = "stop_driver_moment_index", columnList = "driver_identifier, moment"),
+        @Index(name = "stop_driver_location_moment_index", columnList = "driver_identifier, location, moment")
+    }
+)
+@Getter
+@Setter
+@ToString
 @AllArgsConstructor
 @NoArgsConstructor
 public class Stop {
@@ -37,14 +49,21 @@ public class Stop {
     }
 
     /**
-     * Identifies this entity.
+     * Identifies this entity. The ids are allocated by blocks of 50 from a
+     * single value of the sequence (hi/lo) so that the inserts can be batched
+     * without reading the sequence for each of them. The sequence itself
+     * still increments by one.
      */
     @Id
     @GeneratedValue(generator = "stop_sequence_generator", strategy = GenerationType.SEQUENCE)
-    @SequenceGenerator(
+    @GenericGenerator(
             name = "stop_sequence_generator",
-            sequenceName = "stop_sequence",
-            allocationSize = 1
+            strategy = "org.hibernate.id.enhanced.SequenceStyleGenerator",
+            parameters = {
+                    @Parameter(name = "sequence_name", value = "stop_sequence"),
+                    @Parameter(name = "increment_size", value = "50"),
+                    @Parameter(name = "optimizer", value = "hilo")
+            }
     )
     private Long id;
 
@@ -68,11 +87,13 @@ public class Stop {
     @NotNull
     @OneToOne(cascade = CascadeType.MERGE)
     @JoinColumn(name = "location", referencedColumnName = "id")
+    @ToString.Exclude
     private Location location;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn
     @JsonIgnore
+    @ToString.Exclude
     private Driver driver;
 
     public Stop(@NotNull LocalDateTime moment, @NotNull @Min(0) Long odometerValue, @Valid @NotNull Location location) {
@@ -98,4 +119,27 @@ public class Stop {
         setLocation(location);
     }
 
+    /**
+     * Compares the stops by id, like the rides are. A stop without id is
+     * only equal to itself.
+     */
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof Stop)) {
+            return false;
+        }
+        return id != null && id.equals(((Stop) other).getId());
+    }
+
+    /**
+     * Gets a hash code independent of the id, see {@link journal.de.bord.api.rides.Ride#hashCode()}.
+     */
+    @Override
+    public int hashCode() {
+        return Stop.class.hashCode();
+    }
+
 }
\ No newline at end of file
@@ -1,17 +1,23 @@
 package journal.de.bord.api.stops;
 
+import journal.de.bord.api.drivers.AuthenticatedDriver;
 import journal.de.bord.api.drivers.Driver;
-import journal.de.bord.api.drivers.DriverService;
 import journal.de.bord.api.locations.Location;
 import journal.de.bord.api.locations.LocationService;
+import journal.de.bord.api.pagination.Cursor;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Slice;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
 
 import javax.validation.Valid;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
 
 /**
  * The controller handle the REST interface exposing the stops resources.
@@ -20,8 +26,7 @@ import javax.validation.Valid;
 @RequestMapping("/api/drivers/{driverId}")
 public class StopController {
 
-    @Autowired
-    private DriverService driverService;
+    private static final int DEFAULT_SIZE = 20;
 
     @Autowired
     private StopService stopService;
@@ -32,22 +37,19 @@ public class StopController {
     /**
      * Creates a new stop for the specified driver.
      *
-     * @param driverId is the identifier of the driver to create a new stop for.
+     * @param driver is the driver to create a new stop for.
      * @return the response without content (created status, 201).
      * @throws ResponseStatusException when the stop cannot be created.
      */
     @PostMapping(path = "/stops")
     public ResponseEntity create(
-            Authentication user,
-            @PathVariable("driverId") String driverId,
+            @AuthenticatedDriver Driver driver,
             @Valid @RequestBody StopDto data
     ) {
         try {
-            requireAuthenticatedOwner(user.getName(), driverId);
-            Driver driver = driverService.findById(driverId);
-            if (driver.ownsLocationById(data.getLocationId())) {
-                Location location = driver.getLocationById(data.getLocationId());
-                Long id = stopService.createNewStopFor(driver, data, location);
+            Optional<Location> location = locationService.findLocationFor(driver, data.getLocationId());
+            if (location.isPresent()) {
+                Long id = stopService.createNewStopFor(driver, data, location.get());
                 return new ResponseEntity(new Object() {
                     public final Long stopId = id;
                 }, HttpStatus.CREATED);
@@ -64,7 +66,7 @@ public class StopController {
     /**
      * Gets a specific user's stop.
      *
-     * @param driverId is the identifier of the driver to get the stop for.
+     * @param driver is the driver to get the stop for.
      * @param identifier is the stop id.
      * @return the response containing the location (JSON).
      * @throws ResponseStatusException 404 the specified driver or stop id does
@@ -72,45 +74,81 @@ public class StopController {
      */
     @GetMapping(path = "/stops/{identifier}")
     public ResponseEntity stop(
-            Authentication user,
-            @PathVariable("driverId") String driverId,
+            @AuthenticatedDriver Driver driver,
             @PathVariable("identifier") String identifier
     ) {
         try {
-            requireAuthenticatedOwner(user.getName(), driverId);
-            Driver driver = driverService.findById(driverId);
             Stop stop = stopService.findStopFor(driver, identifier);
-            return ResponseEntity.ok(stop);
+            return ResponseEntity.ok(StopView.of(stop));
         } catch (NullPointerException | IllegalArgumentException exception) {
             throw new ResponseStatusException(HttpStatus.NOT_FOUND, exception.getMessage());
         }
     }
 
     /**
-     * Gets all the stops that a driver has made.
+     * Gets the stops that a driver has made, from the most recent one. When a
+     * cursor or a size is given, the stops are read by slices of at most 100
+     * stops and the response contains the cursor of the next stops. Otherwise
+     * the response is the array of the 100 most recent stops, as it was
+     * before the stops were read by slices, the older stops are read with a
+     * cursor.
      *
-     * @param driverId is the identifier of the driver to get the stops for.
+     * @param driver is the driver to get the stops for.
+     * @param cursor is the cursor returned with the previous stops, empty to
+     * get the most recent stops.
+     * @param size is the maximum number of stops to get, 20 when only the
+     * cursor is given.
+     * @param from is the moment of the oldest stops to get (ISO date time).
+     * @param to is the moment of the most recent stops to get (ISO date time).
+     * @param locationId is the id of the location of the stops to get.
      * @return the response containing a list of stops.
      * @throws ResponseStatusException 404 the specified driver does not exist.
+     * Or 400 when the cursor or the size is invalid.
      */
     @GetMapping(path = "/stops")
     public ResponseEntity stops(
-            Authentication user,
-            @PathVariable("driverId") String driverId
+            @AuthenticatedDriver Driver driver,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "size", required = false) Integer size,
+            @RequestParam(value = "from", required = false)
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(value = "to", required = false)
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(value = "locationId", required = false) Long locationId
     ) {
+        if (cursor == null && size == null) {
+            List<Stop> stops = stopService
+                    .findStopsFor(driver.getIdentifier(), from, to, locationId, null, StopService.MAX_STOPS)
+                    .getContent();
+            return ResponseEntity.ok(stops.stream().map(StopView::of).collect(Collectors.toList()));
+        }
+        int sliceSize = size == null ? DEFAULT_SIZE : size;
+        if (sliceSize < 1) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "The size should be positive.");
+        }
+        Cursor after;
         try {
-            requireAuthenticatedOwner(user.getName(), driverId);
-            Driver driver = driverService.findById(driverId);
-            return ResponseEntity.ok(stopService.findAllStopsFor(driver));
+            after = cursor == null || cursor.isEmpty() ? null : Cursor.decode(cursor);
         } catch (IllegalArgumentException e) {
-            throw new ResponseStatusException(HttpStatus.NOT_FOUND, e.getMessage());
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
         }
+        Slice<Stop> stopsSlice = stopService.findStopsFor(driver.getIdentifier(), from, to, locationId, after, sliceSize);
+        List<Stop> content = stopsSlice.getContent();
+        Stop last = content.isEmpty() ? null : content.get(content.size() - 1);
+        return ResponseEntity.ok(new Object() {
+            public final List<StopView> stops = content.stream()
+                    .map(StopView::of)
+                    .collect(Collectors.toList());
+            public final String next = stopsSlice.hasNext()
+                    ? new Cursor(last.getMoment(), last.getId()).encode()
+                    : null;
+        });
     }
 
     /**
      * Updates the specified stop with the given one.
      *
-     * @param driverId is the identifier of the driver.
+     * @param driver is the driver.
      * @param identifier is the stop id.
      * @param data is the data of the new stop.
      * @return the response without content (204).
@@ -119,17 +157,14 @@ public class StopController {
      */
     @PutMapping(path = "/stops/{identifier}")
     public ResponseEntity update(
-            Authentication user,
-            @PathVariable("driverId") String driverId,
+            @AuthenticatedDriver Driver driver,
             @PathVariable("identifier") String identifier,
             @Valid @RequestBody StopDto data
     ) {
         try {
-            requireAuthenticatedOwner(user.getName(), driverId);
-            Driver driver = driverService.findById(driverId);
-            if (driver.ownsLocationById(data.getLocationId())) {
-                Location location = driver.getLocationById(data.getLocationId());
-                stopService.updateStopFor(identifier, driver, data, location);
+            Optional<Location> location = locationService.findLocationFor(driver, data.getLocationId());
+            if (location.isPresent()) {
+                stopService.updateStopFor(identifier, driver, data, location.get());
                 return new ResponseEntity(HttpStatus.NO_CONTENT);
             } else {
                 throw new ResponseStatusException(HttpStatus.UNPROCESSABLE_ENTITY);
@@ -144,7 +179,7 @@ public class StopController {
     /**
      * Deletes the specified stop.
      *
-     * @param driverId is the identifier of the driver.
+     * @param driver is the driver.
      * @param identifier is the stop id.
      * @return the response without content (204).
      * @throws ResponseStatusException if the driver or the location cannot be
@@ -152,13 +187,10 @@ public class StopController {
      */
     @DeleteMapping(path = "/stops/{identifier}")
     public ResponseEntity delete(
-            Authentication user,
-            @PathVariable("driverId") String driverId,
+            @AuthenticatedDriver Driver driver,
             @PathVariable("identifier") String identifier
     ) {
         try {
-            requireAuthenticatedOwner(user.getName(), driverId);
-            Driver driver = driverService.findById(driverId);
             stopService.deleteStopFor(driver, identifier);
             return new ResponseEntity(HttpStatus.NO_CONTENT);
         } catch (NullPointerException | IllegalArgumentException e) {
@@ -166,10 +198,4 @@ public class StopController {
         }
     }
 
-    private static void requireAuthenticatedOwner(String authenticated, String requested) {
-        if (!authenticated.equals(requested)) {
-            throw new ResponseStatusException(HttpStatus.FORBIDDEN);
-        }
-    }
-
 }
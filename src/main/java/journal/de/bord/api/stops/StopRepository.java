@@ -1,8 +1,67 @@
 package journal.de.bord.api.stops;
 
-import journal.de.bord.api.locations.Location;
-import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 
-public interface StopRepository extends CrudRepository<Stop, Long> {
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
 
-}
\ No newline at end of file
+public interface StopRepository extends JpaRepository<Stop, Long> {
+
+    /**
+     * Finds one of the driver's stops with its location, so that the stop
+     * is complete when it is returned outside of the persistence context.
+     */
+    @EntityGraph(attributePaths = "location")
+    Optional<Stop> findByIdAndDriverIdentifier(Long id, String driverIdentifier);
+
+    /**
+     * Finds the driver's stops with the given ids and their locations.
+     *
+     * @param driverIdentifier is the identifier of the driver owning the stops.
+     * @param ids are the stop ids.
+     * @return the stops owned by the driver, stops owned by other drivers are
+     * not returned.
+     */
+    @Query("SELECT s FROM Stop s JOIN FETCH s.location WHERE s.driver.identifier = ?1 AND s.id IN ?2")
+    List<Stop> findByDriverIdentifierAndIdIn(String driverIdentifier, Collection<Long> ids);
+
+    /*
+     * The range queries read the stops from the most recent one whose moment
+     * is between the given bounds and that comes before the given position
+     * (moment, id). They are served by a range scan of the stop
+     * (driver_identifier, moment) and (driver_identifier, location, moment)
+     * indexes.
+     */
+
+    @Query("SELECT s FROM Stop s JOIN FETCH s.location\n" +
+            "WHERE s.driver.identifier = ?1 AND s.moment >= ?2\n" +
+            "AND (s.moment < ?3 OR (s.moment = ?3 AND s.id < ?4))\n" +
+            "ORDER BY s.moment DESC, s.id DESC")
+    Slice<Stop> findByDriverIdentifierBetween(
+            String driverIdentifier,
+            LocalDateTime from,
+            LocalDateTime beforeMoment,
+            Long beforeId,
+            Pageable pageable
+    );
+
+    @Query("SELECT s FROM Stop s JOIN FETCH s.location\n" +
+            "WHERE s.driver.identifier = ?1 AND s.location.id = ?2 AND s.moment >= ?3\n" +
+            "AND (s.moment < ?4 OR (s.moment = ?4 AND s.id < ?5))\n" +
+            "ORDER BY s.moment DESC, s.id DESC")
+    Slice<Stop> findByDriverIdentifierAndLocationBetween(
+            String driverIdentifier,
+            Long locationId,
+            LocalDateTime from,
+            LocalDateTime beforeMoment,
+            Long beforeId,
+            Pageable pageable
+    );
+
+}
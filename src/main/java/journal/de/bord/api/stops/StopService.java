@@ -1,54 +1,130 @@
 package journal.de.bord.api.stops;
 
 import journal.de.bord.api.drivers.Driver;
+import journal.de.bord.api.drivers.DriverService;
+import journal.de.bord.api.drivers.DriverStatisticsService;
 import journal.de.bord.api.locations.Location;
+import journal.de.bord.api.pagination.Cursor;
 import journal.de.bord.api.rides.Ride;
-import journal.de.bord.api.rides.RideDto;
+import journal.de.bord.api.rides.RideRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.dao.NonTransientDataAccessException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import javax.annotation.PostConstruct;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Objects;
 
 @Service
 public class StopService {
 
+    /**
+     * Are the bounds used when the range of the stops is not given.
+     */
+    public static final LocalDateTime EARLIEST_MOMENT = LocalDateTime.of(1, 1, 1, 0, 0);
+    public static final LocalDateTime LATEST_MOMENT = LocalDateTime.of(9999, 12, 31, 23, 59, 59);
+
+    /**
+     * Is the maximum number of stops read at once.
+     */
+    public static final int MAX_STOPS = 100;
+
     @Autowired
     StopRepository stopRepository;
 
-    public boolean containsDepartureOf(RideDto ride) {
-        return stopRepository.existsById(ride.getDeparture());
-    }
+    @Autowired
+    RideRepository rideRepository;
+
+    @Autowired
+    DriverStatisticsService statisticsService;
 
-    public boolean containsArrivalOf(RideDto ride) {
-        return ride == null || stopRepository.existsById(ride.getArrival());
+    @Autowired
+    DriverService driverService;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    private Counter created;
+    private Counter updated;
+    private Counter deleted;
+
+    @PostConstruct
+    private void registerMeters() {
+        created = meterRegistry.counter("journal.stops", "operation", "create");
+        updated = meterRegistry.counter("journal.stops", "operation", "update");
+        deleted = meterRegistry.counter("journal.stops", "operation", "delete");
     }
 
+    @Transactional(readOnly = true)
     public Stop findStopFor(Driver driver, String identifier) {
         try {
-            Stop result = driver.getStopById(Long.parseLong(identifier));
-            if (result == null) {
-                throw new IllegalArgumentException("No stop with id: " + identifier);
-            }
-            return result;
+            return findStopFor(driver, Long.parseLong(identifier));
         } catch (NumberFormatException exception) {
             throw new IllegalArgumentException("The id is invalid: " + identifier);
         }
     }
 
+    @Transactional(readOnly = true)
     public Stop findStopFor(Driver driver, Long identifier) {
-        Stop result = driver.getStopById(identifier);
-        if (result == null) {
-            throw new IllegalArgumentException("No stop with id: " + identifier);
-        }
-        return result;
+        Objects.requireNonNull(driver, "\"driver\" argument is null");
+        Objects.requireNonNull(identifier, "\"identifier\" argument is null");
+        return stopRepository.findByIdAndDriverIdentifier(identifier, driver.getIdentifier()).orElseThrow(
+                () -> new IllegalArgumentException("No stop with id: " + identifier)
+        );
     }
 
-    public List<Stop> findAllStopsFor(Driver driver) {
-        Objects.requireNonNull(driver, "\"driver\" argument is null");
-        return driver.getStops();
+    /**
+     * Gets a slice of the stops of the specified driver ordered from the most
+     * recent one to the oldest one.
+     *
+     * @param driverId is the identifier of the driver to get stops for.
+     * @param from is the moment of the oldest stops to get or null.
+     * @param to is the moment of the most recent stops to get or null.
+     * @param locationId is the id of the location of the stops to get or null
+     * to get the stops at any location.
+     * @param after is the position of the last stop read or null to get the
+     * most recent stops.
+     * @param size is the maximum number of stops to get, it cannot exceed
+     * {@link #MAX_STOPS}.
+     * @return the slice of stops following the given position.
+     * @throws NullPointerException when the driver id is null.
+     * @throws IllegalArgumentException when the size is lower than one.
+     */
+    @Transactional(readOnly = true)
+    public Slice<Stop> findStopsFor(
+            String driverId,
+            LocalDateTime from,
+            LocalDateTime to,
+            Long locationId,
+            Cursor after,
+            int size
+    ) {
+        Objects.requireNonNull(driverId, "\"driverId\" argument is null");
+        Pageable pageable = PageRequest.of(0, Math.min(size, MAX_STOPS));
+        LocalDateTime lowerBound = from == null ? EARLIEST_MOMENT : from;
+        LocalDateTime beforeMoment = to == null ? LATEST_MOMENT : to;
+        Long beforeId = Long.MAX_VALUE;
+        if (after != null && !after.getMoment().isAfter(beforeMoment)) {
+            beforeMoment = after.getMoment();
+            beforeId = after.getId();
+        }
+        if (locationId == null) {
+            return stopRepository.findByDriverIdentifierBetween(
+                    driverId, lowerBound, beforeMoment, beforeId, pageable
+            );
+        } else {
+            return stopRepository.findByDriverIdentifierAndLocationBetween(
+                    driverId, locationId, lowerBound, beforeMoment, beforeId, pageable
+            );
+        }
     }
 
     public Long createNewStopFor(Driver driver, StopDto data, Location location) {
@@ -59,96 +135,52 @@ public class StopService {
             Stop stop = Stop.from(data, location);
             stop.setDriver(driver);
             Stop saved = stopRepository.save(stop);
+            created.increment();
             return saved.getId();
         } catch (NonTransientDataAccessException e) {
             throw new IllegalStateException();
         }
     }
 
+    @Transactional
     public void updateStopFor(String id, Driver driver, StopDto data, Location location) {
         Objects.requireNonNull(driver, "\"driver\" argument is null");
         Objects.requireNonNull(data, "\"data\" argument is null");
         Objects.requireNonNull(location, "\"location\" argument is null");
         try {
             Stop stop = findStopFor(driver, id);
+            // The rides are loaded before the stop changes so that they hold
+            // the distance accounted for in the driver statistics.
+            List<Ride> rides = rideRepository.findByDepartureIdOrArrivalId(stop.getId(), stop.getId());
+            boolean moved = !stop.getMoment().equals(data.getMoment());
             stop.setValues(data, location);
-            stopRepository.save(stop);
+            rides.forEach(Ride::measure);
+            stopRepository.saveAndFlush(stop);
+            for (Ride ride : rides) {
+                statisticsService.rideSaved(ride, false);
+            }
+            // Moving a ride stop may change which ride departs last.
+            if (moved && !rides.isEmpty()) {
+                driverService.refreshLastRide(driver.getIdentifier());
+            }
+            updated.increment();
         } catch (DataIntegrityViolationException e) {
             throw new IllegalStateException();
         }
     }
 
+    @Transactional
     public void deleteStopFor(Driver driver, String identifier) {
         Objects.requireNonNull(driver, "\"driver\" argument is null");
         Objects.requireNonNull(identifier, "\"identifier\" argument is null");
         try {
             Stop stop = findStopFor(driver, identifier);
             stopRepository.delete(stop);
+            stopRepository.flush();
+            deleted.increment();
         } catch (DataIntegrityViolationException e) {
             throw new IllegalStateException();
         }
     }
 
-    public boolean containsRideStops(RideDto ride) {
-        return containsDepartureOf(ride) && containsArrivalOf(ride);
-    }
-
-    private Stop findRideDeparture(RideDto ride) {
-        if (containsDepartureOf(ride)) {
-            return stopRepository.findById(ride.getDeparture()).get();
-        } else {
-            throw new IllegalStateException(String.format(
-                "Cannot find departure with id: %d",
-                ride.getDeparture())
-            );
-        }
-    }
-
-    private Stop findRideArrival(RideDto ride) {
-        if (containsArrivalOf(ride)) {
-            return stopRepository.findById(ride.getArrival()).get();
-        } else {
-            throw new IllegalStateException(String.format(
-                "Cannot find arrival with id: %d",
-                ride.getArrival())
-            );
-        }
-    }
-
-    public Ride makeRide(RideDto data) {
-        try {
-            Ride ride = new Ride();
-            ride.setDeparture(findRideDeparture(data));
-            if (data.getTrafficCondition() != null) {
-                ride.setTrafficCondition(data.getTrafficCondition());
-            }
-            if (data.getArrival() != null) {
-                Stop arrival = findRideArrival(data);
-                ride.setArrival(arrival);
-            }
-            ride.setComment(data.getComment());
-            return ride;
-        } catch (IllegalStateException e) {
-            throw new IllegalStateException(
-                "Could not make the ride: " + e.getMessage()
-            );
-        }
-    }
-
-    public Ride updateRide(Ride ride, RideDto updatedData) {
-        try {
-            Stop departure = findRideDeparture(updatedData);
-            Stop arrival = findRideArrival(updatedData);
-            ride.setDeparture(departure);
-            ride.setArrival(arrival);
-            ride.setTrafficCondition(updatedData.getTrafficCondition());
-            ride.setComment(updatedData.getComment());
-            return ride;
-        } catch (IllegalStateException e) {
-            throw new IllegalStateException(
-                    "Could not update the ride: " + e.getMessage()
-            );
-        }
-    }
-
 }
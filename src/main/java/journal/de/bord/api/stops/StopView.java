@@ -0,0 +1,32 @@
+package journal.de.bord.api.stops;
+
+import journal.de.bord.api.locations.LocationView;
+import lombok.Value;
+
+import java.time.LocalDateTime;
+
+/**
+ * Is the read-only representation of a stop returned by the API, with its
+ * location.
+ */
+@Value
+public class StopView {
+
+    public static StopView of(Stop stop) {
+        return new StopView(
+                stop.getId(),
+                stop.getMoment(),
+                stop.getOdometerValue(),
+                LocationView.of(stop.getLocation())
+        );
+    }
+
+    Long id;
+
+    LocalDateTime moment;
+
+    Long odometerValue;
+
+    LocationView location;
+
+}
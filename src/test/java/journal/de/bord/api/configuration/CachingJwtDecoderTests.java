@@ -0,0 +1,123 @@
+package journal.de.bord.api.configuration;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.oauth2.jwt.BadJwtException;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class CachingJwtDecoderTests {
+
+    private static final Instant NOW = Instant.parse("2020-06-01T12:00:00Z");
+
+    private final List<String> decoded = new ArrayList<>();
+
+    private final MovingClock clock = new MovingClock();
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private JwtDecoder delegate(Duration validity) {
+        return token -> {
+            decoded.add(token);
+            if (token.startsWith("bad")) {
+                throw new BadJwtException("Invalid signature");
+            }
+            return Jwt.withTokenValue(token)
+                    .header("alg", "RS256")
+                    .subject("driver")
+                    .issuedAt(NOW)
+                    .expiresAt(validity == null ? null : NOW.plus(validity))
+                    .build();
+        };
+    }
+
+    @Test
+    public void verifiesEachTokenOnce() {
+        CachingJwtDecoder decoder = new CachingJwtDecoder(delegate(Duration.ofMinutes(5)), 10, meterRegistry, clock);
+        decoder.decode("a");
+        decoder.decode("b");
+        assertThat(decoder.decode("a").getSubject()).isEqualTo("driver");
+        assertThat(decoded).containsExactly("a", "b");
+    }
+
+    @Test
+    public void countsTheHitsAndMissesInTheGivenRegistry() {
+        CachingJwtDecoder decoder = new CachingJwtDecoder(delegate(Duration.ofMinutes(5)), 10, meterRegistry, clock);
+        decoder.decode("a");
+        decoder.decode("a");
+        decoder.decode("b");
+        assertThat(meterRegistry.counter("journal.jwt.cache", "result", "hit").count()).isEqualTo(1);
+        assertThat(meterRegistry.counter("journal.jwt.cache", "result", "miss").count()).isEqualTo(2);
+    }
+
+    @Test
+    public void verifiesTheExpiredTokensAgain() {
+        CachingJwtDecoder decoder = new CachingJwtDecoder(delegate(Duration.ofMinutes(5)), 10, meterRegistry, clock);
+        decoder.decode("a");
+        clock.now = NOW.plus(Duration.ofMinutes(5));
+        decoder.decode("a");
+        assertThat(decoded).containsExactly("a", "a");
+    }
+
+    @Test
+    public void verifiesTheTokensWithoutExpirationEachTime() {
+        CachingJwtDecoder decoder = new CachingJwtDecoder(delegate(null), 10, meterRegistry, clock);
+        decoder.decode("a");
+        decoder.decode("a");
+        assertThat(decoded).containsExactly("a", "a");
+    }
+
+    @Test
+    public void doesNotKeepTheRejectedTokens() {
+        CachingJwtDecoder decoder = new CachingJwtDecoder(delegate(Duration.ofMinutes(5)), 10, meterRegistry, clock);
+        assertThatThrownBy(() -> decoder.decode("bad")).isInstanceOf(BadJwtException.class);
+        assertThatThrownBy(() -> decoder.decode("bad")).isInstanceOf(BadJwtException.class);
+        assertThat(decoded).containsExactly("bad", "bad");
+    }
+
+    @Test
+    public void evictsTheLeastRecentlyUsedTokens() {
+        CachingJwtDecoder decoder = new CachingJwtDecoder(delegate(Duration.ofMinutes(5)), 2, meterRegistry, clock);
+        decoder.decode("a");
+        decoder.decode("b");
+        decoder.decode("a");
+        decoder.decode("c");
+        decoder.decode("a");
+        decoder.decode("b");
+        assertThat(decoded).containsExactly("a", "b", "c", "b");
+    }
+
+    private static class MovingClock extends Clock {
+
+        private Instant now = NOW;
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+
+    }
+
+}
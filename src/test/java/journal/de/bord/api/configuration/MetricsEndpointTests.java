@@ -0,0 +1,62 @@
+package journal.de.bord.api.configuration;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import journal.de.bord.api.drivers.Driver;
+import journal.de.bord.api.drivers.DriverDto;
+import journal.de.bord.api.drivers.DriverService;
+import journal.de.bord.api.locations.LocationDto;
+import journal.de.bord.api.locations.LocationService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.autoconfigure.web.server.LocalManagementPort;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.web.client.RestTemplate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+public class MetricsEndpointTests {
+
+    private static final String DRIVER = "metrics-driver";
+
+    @LocalManagementPort
+    private int managementPort;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private DriverService driverService;
+
+    @Autowired
+    private LocationService locationService;
+
+    private final RestTemplate restTemplate = new RestTemplate();
+
+    private String management(String path) {
+        return "http://localhost:" + managementPort + path;
+    }
+
+    @Test
+    public void metricsAreExportedOnTheManagementPort() {
+        String metrics = restTemplate.getForObject(management("/actuator/prometheus"), String.class);
+        assertThat(metrics)
+                .contains("journal_rides_total{operation=\"create\",}")
+                .contains("journal_stops_total{operation=\"update\",}")
+                .contains("journal_locations_total{operation=\"delete\",}")
+                .contains("journal_jwt_cache_total{result=\"hit\",}")
+                .contains("hikaricp_connections_acquire_seconds_count")
+                .contains("hibernate_statements_total");
+    }
+
+    @Test
+    public void writesAreCountedInTheInjectedRegistry() {
+        double created = meterRegistry.counter("journal.locations", "operation", "create").count();
+        driverService.create(new DriverDto(DRIVER, 1000L));
+        Driver driver = driverService.findById(DRIVER);
+        locationService.createNewLocationFor(driver, new LocationDto(DRIVER + " home", 50.0, 4.0));
+        assertThat(meterRegistry.counter("journal.locations", "operation", "create").count())
+                .isEqualTo(created + 1);
+    }
+
+}
@@ -0,0 +1,69 @@
+package journal.de.bord.api.controllers;
+
+import journal.de.bord.api.drivers.DriverDto;
+import journal.de.bord.api.drivers.DriverService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.RequestPostProcessor;
+
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.jwt;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+public class AuthenticatedDriverTests {
+
+    private static final String DRIVER = "authenticated-driver";
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private DriverService driverService;
+
+    @BeforeEach
+    public void setUp() {
+        driverService.create(new DriverDto(DRIVER, 1000L));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        driverService.deleteById(DRIVER);
+    }
+
+    private static RequestPostProcessor authenticatedAs(String subject) {
+        return jwt().jwt(token -> token.subject(subject)).authorities(new SimpleGrantedAuthority("SCOPE_read"));
+    }
+
+    @Test
+    public void resolvesTheAuthenticatedDriver() throws Exception {
+        mvc.perform(get("/api/drivers/" + DRIVER + "/locations").with(authenticatedAs(DRIVER)))
+                .andExpect(status().isOk());
+        mvc.perform(get("/api/drivers/" + DRIVER + "/rides?cursor=").with(authenticatedAs(DRIVER)))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    public void rejectsTheOtherDrivers() throws Exception {
+        mvc.perform(get("/api/drivers/" + DRIVER + "/stops").with(authenticatedAs("someone-else")))
+                .andExpect(status().isForbidden());
+        mvc.perform(get("/api/drivers/unknown/rides").with(authenticatedAs(DRIVER)))
+                .andExpect(status().isForbidden());
+    }
+
+    @Test
+    public void rejectsTheUnknownDrivers() throws Exception {
+        mvc.perform(get("/api/drivers/unknown/rides").with(authenticatedAs("unknown")))
+                .andExpect(status().isNotFound());
+        mvc.perform(get("/api/drivers/unknown/journal").with(authenticatedAs("unknown")))
+                .andExpect(status().isNotFound());
+    }
+
+}
@@ -0,0 +1,95 @@
+package journal.de.bord.api.controllers;
+
+import com.jayway.jsonpath.JsonPath;
+import journal.de.bord.api.drivers.DriverStatisticsBackfill;
+import journal.de.bord.api.journal.JournalGenerator;
+import journal.de.bord.api.rides.Ride;
+import journal.de.bord.api.rides.RideRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.RequestPostProcessor;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.jwt;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+public class RideListingTests {
+
+    private static final String LEGACY_DRIVER = "legacy-ride-listing-driver";
+    private static final String RIDES = "/api/drivers/" + LEGACY_DRIVER + "/rides";
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private JournalGenerator journalGenerator;
+
+    @Autowired
+    private RideRepository rideRepository;
+
+    @Autowired
+    private DriverStatisticsBackfill backfill;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private static RequestPostProcessor authenticated() {
+        return jwt().jwt(token -> token.subject(LEGACY_DRIVER)).authorities(new SimpleGrantedAuthority("SCOPE_read"));
+    }
+
+    private List<Long> readAllRides(int size) throws Exception {
+        List<Long> identifiers = new ArrayList<>();
+        String cursor = "";
+        do {
+            String response = mvc.perform(get(RIDES + "?size=" + size + "&cursor=" + cursor).with(authenticated()))
+                    .andExpect(status().isOk())
+                    .andReturn().getResponse().getContentAsString();
+            List<Number> page = JsonPath.read(response, "$.rides[*].id");
+            page.forEach(id -> identifiers.add(id.longValue()));
+            cursor = JsonPath.read(response, "$.next");
+        } while (cursor != null);
+        return identifiers;
+    }
+
+    @Test
+    public void legacyRidesAreListedOnceMeasuredAtStartup() throws Exception {
+        journalGenerator.generate(LEGACY_DRIVER, 23, 5, 12);
+        // The rides are left as they were before their departure moment and
+        // their cumulative values were stored.
+        transactionTemplate.execute(status -> entityManager.createQuery("UPDATE Ride r\n"
+                + "SET r.storedDepartureMoment = NULL, r.cumulativeRides = NULL, r.cumulativeDistance = NULL\n"
+                + "WHERE r.driver.identifier = ?1")
+                .setParameter(1, LEGACY_DRIVER)
+                .executeUpdate());
+
+        backfill.afterSingletonsInstantiated();
+
+        Sort order = Sort.by("storedDepartureMoment", "id").descending();
+        List<Long> expected = rideRepository.findByDriverIdentifier(LEGACY_DRIVER, PageRequest.of(0, 100, order))
+                .stream()
+                .map(Ride::getId)
+                .collect(Collectors.toList());
+        assertThat(expected).hasSize(12);
+        assertThat(readAllRides(5)).isEqualTo(expected);
+    }
+
+}
@@ -0,0 +1,256 @@
+package journal.de.bord.api.controllers;
+
+import journal.de.bord.api.drivers.DriverService;
+import journal.de.bord.api.journal.JournalGenerator;
+import journal.de.bord.api.rides.Ride;
+import journal.de.bord.api.rides.RideRepository;
+import journal.de.bord.api.support.StatementCounter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import javax.persistence.EntityManagerFactory;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.jwt;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Guards the number of SQL statements issued by each endpoint. Every bound is
+ * checked for a driver with 1 and with 1000 rides (and as many locations) so
+ * that a statement issued by row, or a scan of a driver's collection, makes
+ * the test fail.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+public class StatementCountTests {
+
+    private static final long SEED = 42;
+
+    /**
+     * Is the number of entities an export may load for each row of the
+     * driver: a ride, its stops and their location.
+     */
+    private static final int LOADS_PER_ROW = 4;
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private DriverService driverService;
+
+    @Autowired
+    private JournalGenerator journalGenerator;
+
+    @Autowired
+    private RideRepository rideRepository;
+
+    private StatementCounter counter;
+
+    private String driverId;
+
+    private Ride lastRide;
+
+    @BeforeEach
+    public void setUp() {
+        counter = new StatementCounter(entityManagerFactory);
+    }
+
+    private void givenDriverWith(int rows) {
+        driverId = "driver-" + rows;
+        if (!driverService.exist(driverId)) {
+            journalGenerator.generate(driverId, SEED, rows, rows);
+        }
+        lastRide = rideRepository
+                .findLatestByDriverIdentifier(driverId, PageRequest.of(0, 1))
+                .getContent()
+                .get(0);
+    }
+
+    private MockHttpServletRequestBuilder authenticated(MockHttpServletRequestBuilder request) {
+        return request.with(jwt()
+                .jwt(token -> token.subject(driverId))
+                .authorities(new SimpleGrantedAuthority("SCOPE_read"), new SimpleGrantedAuthority("SCOPE_write")));
+    }
+
+    private String driverPath(String path) {
+        return "/api/drivers/" + driverId + path;
+    }
+
+    private MvcResult assertStatements(
+            RequestBuilder request,
+            int expectedStatus,
+            long maxStatements,
+            long maxLoads
+    ) throws Exception {
+        counter.reset();
+        MvcResult result = mvc.perform(request).andReturn();
+        if (result.getRequest().isAsyncStarted()) {
+            mvc.perform(asyncDispatch(result)).andExpect(status().is(expectedStatus));
+        } else {
+            assertThat(result.getResponse().getStatus()).isEqualTo(expectedStatus);
+        }
+        assertThat(counter.statements())
+                .as("statements of %s", result.getRequest().getRequestURI())
+                .isLessThanOrEqualTo(maxStatements);
+        assertThat(counter.loads())
+                .as("loads of %s", result.getRequest().getRequestURI())
+                .isLessThanOrEqualTo(maxLoads);
+        return result;
+    }
+
+    private static String idOf(MvcResult created) throws Exception {
+        return created.getResponse().getContentAsString().replaceAll("\\D", "");
+    }
+
+    private long locationId() {
+        return lastRide.getArrival().getLocation().getId();
+    }
+
+    private String stopBody() {
+        return stopBody(1);
+    }
+
+    private String stopBody(int days) {
+        return String.format(
+                "{\"moment\":\"%s\",\"odometerValue\":%d,\"locationId\":%d}",
+                lastRide.getArrival().getMoment().plusDays(days),
+                lastRide.getArrival().getOdometerValue() + 10L * days,
+                locationId()
+        );
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 1000})
+    public void driverEndpoints(int rows) throws Exception {
+        givenDriverWith(rows);
+        // The drivers are read directly into views.
+        assertStatements(authenticated(get("/api/drivers")), 200, 1, 0);
+        assertStatements(authenticated(get("/api/drivers/" + driverId)), 200, 1, 1);
+        assertStatements(authenticated(get("/api/drivers/" + driverId + "/statistics")), 200, 1, 1);
+        // A period is read from the cumulative values of two rides, with the
+        // driver's objective. The recorded ride count is compared with the
+        // one of the last ride first, to check that the rides are measured.
+        assertStatements(authenticated(get("/api/drivers/" + driverId
+                + "/statistics/period?from=2015-01-01T00:00:00&to=2016-01-01T00:00:00")), 200, 5, 2);
+        // A chart is read from one range of the buckets of its granularity,
+        // after the same check.
+        assertStatements(authenticated(get("/api/drivers/" + driverId
+                + "/statistics/timeseries?granularity=month&from=2015-01-01&to=2016-01-01")), 200, 4, 61);
+        // The traffic matrix is computed with one pass over the rides, then
+        // served from the cache.
+        assertStatements(authenticated(get("/api/drivers/" + driverId + "/statistics/traffic")), 200, 2, 0);
+        assertStatements(authenticated(get("/api/drivers/" + driverId + "/statistics/traffic")), 200, 0, 0);
+        assertStatements(authenticated(put("/api/drivers/" + driverId)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"identifier\":\"" + driverId + "\",\"objective\":5000}")), 204, 2, 1);
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 1000})
+    public void locationEndpoints(int rows) throws Exception {
+        givenDriverWith(rows);
+        // The locations are read directly into views.
+        assertStatements(authenticated(get(driverPath("/locations"))), 200, 2, 0);
+        assertStatements(authenticated(get(driverPath("/locations/" + locationId()))), 200, 2, 2);
+        // The searched area grows until it holds enough locations, which
+        // takes at most 9 queries from 1 km to the whole Earth, after the
+        // driver lookup. Only the locations of the searched area are loaded.
+        assertStatements(authenticated(get(driverPath("/locations/nearby?latitude=50.85&longitude=4.35&limit=5"))), 200, 10, 20);
+        String location = "{\"name\":\"" + driverId + " new location\",\"latitude\":50.0,\"longitude\":4.0}";
+        String locationId = idOf(assertStatements(authenticated(post(driverPath("/locations"))
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(location)), 201, 5, 1));
+        assertStatements(authenticated(delete(driverPath("/locations/" + locationId))), 204, 4, 2);
+        assertStatements(authenticated(put(driverPath("/locations/" + locationId()))
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"name\":\"" + driverId + " renamed location\",\"latitude\":50.0,\"longitude\":4.0}")), 204, 3, 2);
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 1000})
+    public void stopEndpoints(int rows) throws Exception {
+        givenDriverWith(rows);
+        assertStatements(authenticated(get(driverPath("/stops?size=20"))), 200, 2, 42);
+        // Without cursor or size, the 100 most recent stops are listed with
+        // their locations.
+        assertStatements(authenticated(get(driverPath("/stops"))), 200, 2, 202);
+        assertStatements(authenticated(get(driverPath("/stops/" + lastRide.getArrival().getId()))), 200, 3, 3);
+        String stopId = idOf(assertStatements(authenticated(post(driverPath("/stops"))
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(stopBody())), 201, 3, 2));
+        assertStatements(authenticated(put(driverPath("/stops/" + stopId))
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(stopBody())), 204, 4, 3);
+        assertStatements(authenticated(delete(driverPath("/stops/" + stopId))), 204, 4, 3);
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 1000})
+    public void rideEndpoints(int rows) throws Exception {
+        givenDriverWith(rows);
+        // A page holds 20 rides with their stops and locations.
+        assertStatements(authenticated(get(driverPath("/rides?page=0&size=20"))), 200, 3, 110);
+        assertStatements(authenticated(get(driverPath("/rides?cursor=&size=20"))), 200, 2, 110);
+        // The size is capped so that a slice holds at most 100 rides.
+        assertStatements(authenticated(get(driverPath("/rides?cursor=&size=1000"))), 200, 2, 550);
+        assertStatements(authenticated(get(driverPath("/rides/" + lastRide.getId()))), 200, 2, 6);
+        String ride = String.format(
+                "{\"departure\":%d,\"arrival\":%d,\"trafficCondition\":\"SLOW\",\"comment\":\"Updated\"}",
+                lastRide.getDeparture().getId(),
+                lastRide.getArrival().getId()
+        );
+        // Writing a ride locks the statistics of the driver and reads the
+        // driver with its last ride. Editing or deleting the last ride reads
+        // the two latest rides to replace it.
+        // Creating a ride reads the cumulative values of the ride before it,
+        // then writes its own and shifts the ones of the rides after it.
+        // Deleting a ride shifts the ones of the rides after it back. Each
+        // write also updates the day, week and month buckets of the ride in
+        // one statement, the missing buckets are inserted in one batch.
+        assertStatements(authenticated(put(driverPath("/rides/" + lastRide.getId()))
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(ride)), 204, 10, 17);
+        String departure = idOf(mvc.perform(authenticated(post(driverPath("/stops"))
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(stopBody(1)))).andReturn());
+        String arrival = idOf(mvc.perform(authenticated(post(driverPath("/stops"))
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(stopBody(2)))).andReturn());
+        String rideId = idOf(assertStatements(authenticated(post(driverPath("/rides"))
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"departure\":" + departure + ",\"arrival\":" + arrival + "}")), 201, 12, 9));
+        assertStatements(authenticated(delete(driverPath("/rides/" + rideId))), 204, 11, 15);
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 1000})
+    public void journalEndpoints(int rows) throws Exception {
+        givenDriverWith(rows);
+        // The export lists the whole journal on purpose, a statement or an
+        // entity loaded by row would exceed the bounds.
+        assertStatements(authenticated(get(driverPath("/journal?format=csv"))), 200, 2, (long) LOADS_PER_ROW * rows);
+        String journal = "{\"locations\":[{\"reference\":\"l\",\"name\":\"" + driverId
+                + " imported location\",\"latitude\":50.0,\"longitude\":4.0}],\"stops\":[],\"rides\":[]}";
+        // The import adds the saved records to the driver's statistics
+        // without reading its history.
+        assertStatements(authenticated(post(driverPath("/journal"))
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(journal)), 200, 6, 7);
+    }
+
+}
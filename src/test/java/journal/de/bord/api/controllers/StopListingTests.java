@@ -0,0 +1,117 @@
+package journal.de.bord.api.controllers;
+
+import com.jayway.jsonpath.JsonPath;
+import journal.de.bord.api.drivers.Driver;
+import journal.de.bord.api.drivers.DriverDto;
+import journal.de.bord.api.drivers.DriverService;
+import journal.de.bord.api.locations.Location;
+import journal.de.bord.api.locations.LocationDto;
+import journal.de.bord.api.locations.LocationService;
+import journal.de.bord.api.stops.StopDto;
+import journal.de.bord.api.stops.StopService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.RequestPostProcessor;
+
+import java.time.LocalDateTime;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.nullValue;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.jwt;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+public class StopListingTests {
+
+    private static final String DRIVER = "stop-listing-driver";
+    private static final String STOPS = "/api/drivers/" + DRIVER + "/stops";
+    private static final LocalDateTime MOMENT = LocalDateTime.of(2020, 7, 1, 8, 0);
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private DriverService driverService;
+
+    @Autowired
+    private LocationService locationService;
+
+    @Autowired
+    private StopService stopService;
+
+    /**
+     * Creates a driver with five stops, one every hour, whose odometer values
+     * are 1000 to 1004.
+     */
+    @BeforeEach
+    public void setUp() {
+        if (driverService.exist(DRIVER)) {
+            return;
+        }
+        driverService.create(new DriverDto(DRIVER, 1000L));
+        Driver driver = driverService.findById(DRIVER);
+        Location location = locationService.findById(locationService.createNewLocationFor(
+                driver, new LocationDto(DRIVER + " home", 50.0, 4.0)
+        ));
+        for (int i = 0; i < 5; i++) {
+            StopDto data = new StopDto(MOMENT.plusHours(i), location.getId(), 1000L + i);
+            stopService.createNewStopFor(driver, data, location);
+        }
+    }
+
+    private static RequestPostProcessor authenticated() {
+        return jwt().jwt(token -> token.subject(DRIVER)).authorities(new SimpleGrantedAuthority("SCOPE_read"));
+    }
+
+    private String nextOf(String response) {
+        return JsonPath.read(response, "$.next");
+    }
+
+    @Test
+    public void listsTheMostRecentStopsWithoutCursorOrSize() throws Exception {
+        mvc.perform(get(STOPS).with(authenticated()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[*].odometerValue").value(contains(1004, 1003, 1002, 1001, 1000)));
+    }
+
+    @Test
+    public void readsTheStopsBySlices() throws Exception {
+        String first = mvc.perform(get(STOPS + "?size=2").with(authenticated()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.stops[*].odometerValue").value(contains(1004, 1003)))
+                .andReturn().getResponse().getContentAsString();
+        String next = mvc.perform(get(STOPS + "?size=2&cursor=" + nextOf(first)).with(authenticated()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.stops[*].odometerValue").value(contains(1002, 1001)))
+                .andReturn().getResponse().getContentAsString();
+        mvc.perform(get(STOPS + "?size=2&cursor=" + nextOf(next)).with(authenticated()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.stops[*].odometerValue").value(contains(1000)))
+                .andExpect(jsonPath("$.next").value(nullValue()));
+    }
+
+    @Test
+    public void readsTheMostRecentStopsWithAnEmptyCursor() throws Exception {
+        mvc.perform(get(STOPS + "?cursor=").with(authenticated()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.stops[*].odometerValue").value(contains(1004, 1003, 1002, 1001, 1000)))
+                .andExpect(jsonPath("$.next").value(nullValue()));
+    }
+
+    @Test
+    public void rejectsAnInvalidCursor() throws Exception {
+        mvc.perform(get(STOPS + "?cursor=invalid").with(authenticated()))
+                .andExpect(status().isBadRequest());
+        mvc.perform(get(STOPS + "?size=0").with(authenticated()))
+                .andExpect(status().isBadRequest());
+    }
+
+}
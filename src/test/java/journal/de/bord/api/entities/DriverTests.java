@@ -72,5 +72,17 @@ public class DriverTests {
         assertThat(driver.canStartWith(faultyStop)).isFalse();
     }
 
+    @Test
+    public void driverLastRideIsTheRideDepartingLast() {
+        Ride first = new Ride(new Stop(toLocalDateTime("2020-01-01 08:00"), 10000L, new Location()));
+        Ride second = new Ride(new Stop(toLocalDateTime("2020-01-02 08:00"), 10100L, new Location()));
+        List<Ride> rides = new ArrayList<>(Arrays.asList(second, first));
+        Driver driver = new Driver("pseudonym", 1000L, rides, new ArrayList<>(), new ArrayList<>());
+        assertThat(driver.getLastRide()).containsSame(second);
+        assertThat(driver.recordRide(first)).isFalse();
+        Ride third = new Ride(new Stop(toLocalDateTime("2020-01-03 08:00"), 10200L, new Location()));
+        assertThat(driver.recordRide(third)).isTrue();
+        assertThat(driver.isDriving()).isTrue();
+    }
 
 }
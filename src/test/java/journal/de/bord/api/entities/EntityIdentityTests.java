@@ -0,0 +1,63 @@
+package journal.de.bord.api.entities;
+
+import journal.de.bord.api.drivers.Driver;
+import journal.de.bord.api.locations.Location;
+import journal.de.bord.api.rides.Ride;
+import journal.de.bord.api.stops.Stop;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class EntityIdentityTests {
+
+    private static Ride ride(Long id, Driver driver) {
+        Location location = new Location("Home", 50.0, 4.0);
+        location.setDriver(driver);
+        Stop departure = new Stop(LocalDateTime.of(2020, 1, 1, 8, 0), 1000L, location);
+        Stop arrival = new Stop(LocalDateTime.of(2020, 1, 1, 9, 0), 1050L, location);
+        departure.setDriver(driver);
+        arrival.setDriver(driver);
+        Ride ride = new Ride(departure, arrival);
+        ride.setId(id);
+        ride.setDriver(driver);
+        return ride;
+    }
+
+    @Test
+    public void entitiesAreIdentifiedByTheirIds() {
+        Driver driver = new Driver("pseudonym", 1000L);
+        Ride saved = ride(1L, driver);
+        Ride edited = ride(1L, driver);
+        edited.setComment("Edited");
+        assertThat(saved).isEqualTo(edited).hasSameHashCodeAs(edited);
+        assertThat(ride(2L, driver)).isNotEqualTo(saved);
+        assertThat(new Driver("pseudonym", 2000L)).isEqualTo(driver).hasSameHashCodeAs(driver);
+    }
+
+    @Test
+    public void newEntitiesAreOnlyEqualToThemselves() {
+        Ride ride = ride(null, null);
+        Set<Ride> rides = new HashSet<>(Arrays.asList(ride, ride(null, null)));
+        ride.setId(1L);
+        assertThat(rides).hasSize(2).contains(ride);
+        assertThat(new Location("Home", 50.0, 4.0)).isNotEqualTo(new Location("Home", 50.0, 4.0));
+    }
+
+    @Test
+    public void associationsAreNotPrinted() {
+        Driver driver = new Driver("pseudonym", 1000L);
+        Ride ride = ride(1L, driver);
+        driver.setRides(new ArrayList<>(Arrays.asList(ride)));
+        driver.getStops().add(ride.getDeparture());
+        assertThat(driver.toString()).doesNotContain("Ride");
+        assertThat(ride.toString()).doesNotContain("Stop", "Driver");
+        assertThat(ride.getDeparture().toString()).doesNotContain("Location", "Driver");
+    }
+
+}
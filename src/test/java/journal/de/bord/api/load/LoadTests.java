@@ -0,0 +1,373 @@
+package journal.de.bord.api.load;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.*;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Drives a mixed read and write traffic against the API started on H2 and
+ * reports the latency percentiles and the throughput of each route. Each
+ * virtual user is a driver authenticated with a token of a local issuer. The
+ * test fails when a request fails or when a latency budget is exceeded.
+ *
+ * The settings are read from load-test.properties and can be overridden with
+ * system properties, e.g. mvn test -Pload-test -Dload.duration=60.
+ */
+@Tag("load")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+public class LoadTests {
+
+    private static final LocalJwtIssuer ISSUER = new LocalJwtIssuer();
+
+    /**
+     * Gives the issuer key set to the application as a file, the way it is
+     * given when the authorization server is not reachable.
+     */
+    @DynamicPropertySource
+    static void localIssuerKeySet(DynamicPropertyRegistry registry) throws IOException {
+        Path keySet = Files.createTempFile("load-test-jwks", ".json");
+        keySet.toFile().deleteOnExit();
+        Files.write(keySet, ISSUER.jwkSet().getBytes(StandardCharsets.UTF_8));
+        registry.add("security.jwt.jwk-set-location", () -> keySet.toUri().toString());
+    }
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    private final RouteLatencies latencies = new RouteLatencies();
+
+    private volatile boolean recording;
+
+    @Test
+    public void routesStayWithinTheirLatencyBudgets() throws Exception {
+        Properties settings = settings();
+        int users = Integer.parseInt(settings.getProperty("load.users"));
+        long warmup = Long.parseLong(settings.getProperty("load.warmup"));
+        long duration = Long.parseLong(settings.getProperty("load.duration"));
+        ExecutorService executor = Executors.newFixedThreadPool(users);
+        long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(warmup + duration);
+        List<Future<?>> sessions = new ArrayList<>();
+        for (int i = 0; i < users; i++) {
+            VirtualUser user = new VirtualUser("load-user-" + i, new Random(i));
+            sessions.add(executor.submit(() -> user.run(end)));
+        }
+        TimeUnit.SECONDS.sleep(warmup);
+        latencies.clear();
+        recording = true;
+        for (Future<?> session : sessions) {
+            session.get();
+        }
+        executor.shutdown();
+        List<String> violations = report(settings, duration);
+        assertThat(violations).isEmpty();
+    }
+
+    private static Properties settings() throws IOException {
+        Properties settings = new Properties();
+        try (InputStream input = LoadTests.class.getResourceAsStream("/load-test.properties")) {
+            settings.load(input);
+        }
+        for (String name : System.getProperties().stringPropertyNames()) {
+            if (name.startsWith("load.") || name.startsWith("budget.")) {
+                settings.setProperty(name, System.getProperty(name));
+            }
+        }
+        return settings;
+    }
+
+    /**
+     * Prints the throughput and the latencies of each route and checks them
+     * against their budgets. A percentile that the route does not have
+     * enough requests to estimate is neither printed nor checked, it would
+     * only be the slowest request.
+     */
+    private List<String> report(Properties settings, long duration) {
+        List<String> violations = new ArrayList<>();
+        System.out.printf("%-20s %8s %8s %9s %9s %9s %9s%n", "route", "count", "req/s", "p50 ms", "p95 ms", "p99 ms", "failures");
+        for (String route : latencies.routes()) {
+            long failures = latencies.failures(route);
+            System.out.printf("%-20s %8d %8.1f %9s %9s %9s %9d%n",
+                    route,
+                    latencies.count(route),
+                    latencies.count(route) / (double) duration,
+                    percentile(route, 50),
+                    percentile(route, 95),
+                    percentile(route, 99),
+                    failures);
+            if (failures > 0) {
+                violations.add(String.format("%s: %d failed requests", route, failures));
+            }
+            for (int percentile : new int[]{95, 99}) {
+                if (!latencies.estimates(route, percentile)) {
+                    continue;
+                }
+                double budget = Double.parseDouble(settings.getProperty(
+                        "budget." + route + ".p" + percentile,
+                        settings.getProperty("budget.default.p" + percentile)
+                ));
+                double latency = latencies.percentile(route, percentile);
+                if (latency > budget) {
+                    violations.add(String.format("%s: p%d of %.2f ms exceeds %.2f ms", route, percentile, latency, budget));
+                }
+            }
+        }
+        return violations;
+    }
+
+    private String percentile(String route, int percentile) {
+        return latencies.estimates(route, percentile)
+                ? String.format("%.2f", latencies.percentile(route, percentile))
+                : "n/a";
+    }
+
+    /**
+     * Is a driver using the API. It writes its journal in the order of time,
+     * so that its rides are always valid, and reads it back.
+     */
+    private class VirtualUser {
+
+        private final String driverId;
+
+        private final String token;
+
+        private final Random random;
+
+        private final List<Long> locations = new ArrayList<>();
+
+        private final List<long[]> rides = new ArrayList<>();
+
+        private LocalDateTime moment = LocalDateTime.of(2020, 1, 1, 8, 0);
+
+        private long odometerValue = 0;
+
+        private int created = 0;
+
+        VirtualUser(String driverId, Random random) {
+            this.driverId = driverId;
+            this.token = ISSUER.issue(driverId);
+            this.random = random;
+        }
+
+        void run(long end) {
+            send("drivers.create", token, HttpMethod.POST, "/api/drivers", driver(), HttpStatus.CREATED);
+            for (int i = 0; i < 5; i++) {
+                createLocation();
+            }
+            createRide();
+            while (System.nanoTime() < end) {
+                int operation = random.nextInt(100);
+                if (operation < 10) {
+                    get("rides.list", "/rides?cursor=&size=20");
+                } else if (operation < 18) {
+                    get("rides.get", "/rides/" + lastRide()[0]);
+                } else if (operation < 26) {
+                    get("stops.list", "/stops?size=20");
+                } else if (operation < 32) {
+                    get("stops.get", "/stops/" + lastRide()[1]);
+                } else if (operation < 38) {
+                    get("locations.list", "/locations");
+                } else if (operation < 44) {
+                    get("locations.get", "/locations/" + randomLocation());
+                } else if (operation < 50) {
+                    get("locations.nearby", "/locations/nearby?latitude=50.8&longitude=4.3&limit=5");
+                } else if (operation < 56) {
+                    send("drivers.get", token, HttpMethod.GET, "/api/drivers/" + driverId, null, HttpStatus.OK);
+                } else if (operation < 62) {
+                    send("drivers.statistics", token, HttpMethod.GET, "/api/drivers/" + driverId + "/statistics", null, HttpStatus.OK);
+                } else if (operation < 64) {
+                    send("drivers.list", token, HttpMethod.GET, "/api/drivers", null, HttpStatus.OK);
+                } else if (operation < 66) {
+                    send("drivers.update", token, HttpMethod.PUT, "/api/drivers/" + driverId, driver(driverId), HttpStatus.NO_CONTENT);
+                } else if (operation < 67) {
+                    createAndDeleteDriver();
+                } else if (operation < 77) {
+                    createRide();
+                } else if (operation < 82) {
+                    updateRide();
+                } else if (operation < 85) {
+                    updateStop();
+                } else if (operation < 87) {
+                    deleteRide();
+                } else if (operation < 88) {
+                    createAndDeleteStop();
+                } else if (operation < 92) {
+                    createLocation();
+                } else if (operation < 96) {
+                    updateLocation();
+                } else {
+                    createAndDeleteLocation();
+                }
+            }
+        }
+
+        private void createLocation() {
+            JsonNode body = post("locations.create", "/locations", location(driverId + " location " + created++));
+            locations.add(body.get("locationId").asLong());
+        }
+
+        private void updateLocation() {
+            Long id = randomLocation();
+            put("locations.update", "/locations/" + id, location(driverId + " renamed location " + id));
+        }
+
+        private void createAndDeleteLocation() {
+            JsonNode body = post("locations.create", "/locations", location(driverId + " location " + created++));
+            delete("locations.delete", "/locations/" + body.get("locationId").asLong());
+        }
+
+        private void createRide() {
+            moment = moment.plusHours(1 + random.nextInt(24));
+            long departure = post("stops.create", "/stops", stop()).get("stopId").asLong();
+            moment = moment.plusMinutes(10 + random.nextInt(120));
+            odometerValue += 1 + random.nextInt(100);
+            long arrival = post("stops.create", "/stops", stop()).get("stopId").asLong();
+            JsonNode body = post("rides.create", "/rides", ride(departure, arrival, null));
+            rides.add(new long[]{body.get("rideId").asLong(), departure, arrival});
+        }
+
+        private void updateRide() {
+            long[] ride = lastRide();
+            put("rides.update", "/rides/" + ride[0], ride(ride[1], ride[2], "Updated " + random.nextInt()));
+        }
+
+        private void updateStop() {
+            // The moment and odometer value are kept so that the rides stay
+            // valid, only the location changes.
+            long[] ride = lastRide();
+            JsonNode stop = get("stops.get", "/stops/" + ride[2]);
+            Map<String, Object> data = new HashMap<>();
+            data.put("moment", stop.get("moment").asText());
+            data.put("odometerValue", stop.get("odometerValue").asLong());
+            data.put("locationId", randomLocation());
+            put("stops.update", "/stops/" + ride[2], data);
+        }
+
+        private void deleteRide() {
+            // The ride stops are deleted with the ride.
+            if (rides.size() > 1) {
+                long[] ride = rides.remove(rides.size() - 1);
+                delete("rides.delete", "/rides/" + ride[0]);
+            }
+        }
+
+        private void createAndDeleteStop() {
+            moment = moment.plusMinutes(1);
+            long stop = post("stops.create", "/stops", stop()).get("stopId").asLong();
+            delete("stops.delete", "/stops/" + stop);
+        }
+
+        private void createAndDeleteDriver() {
+            String identifier = driverId + "-" + UUID.randomUUID();
+            String other = ISSUER.issue(identifier);
+            send("drivers.create", other, HttpMethod.POST, "/api/drivers", driver(), HttpStatus.CREATED);
+            send("drivers.delete", other, HttpMethod.DELETE, "/api/drivers/" + identifier, null, HttpStatus.NO_CONTENT);
+        }
+
+        private long[] lastRide() {
+            return rides.get(rides.size() - 1);
+        }
+
+        private Long randomLocation() {
+            return locations.get(random.nextInt(locations.size()));
+        }
+
+        private Map<String, Object> driver() {
+            return driver(null);
+        }
+
+        private Map<String, Object> driver(String identifier) {
+            Map<String, Object> data = new HashMap<>();
+            data.put("identifier", identifier);
+            data.put("objective", 1000 + random.nextInt(1000));
+            return data;
+        }
+
+        private Map<String, Object> location(String name) {
+            Map<String, Object> data = new HashMap<>();
+            data.put("name", name);
+            data.put("latitude", 50.5 + random.nextDouble());
+            data.put("longitude", 4.0 + random.nextDouble());
+            return data;
+        }
+
+        private Map<String, Object> stop() {
+            Map<String, Object> data = new HashMap<>();
+            data.put("moment", moment.toString());
+            data.put("odometerValue", odometerValue);
+            data.put("locationId", randomLocation());
+            return data;
+        }
+
+        private Map<String, Object> ride(long departure, long arrival, String comment) {
+            Map<String, Object> data = new HashMap<>();
+            data.put("departure", departure);
+            data.put("arrival", arrival);
+            data.put("trafficCondition", "NORMAL");
+            data.put("comment", comment);
+            return data;
+        }
+
+        private JsonNode get(String route, String path) {
+            return send(route, token, HttpMethod.GET, driverPath(path), null, HttpStatus.OK);
+        }
+
+        private JsonNode post(String route, String path, Object body) {
+            return send(route, token, HttpMethod.POST, driverPath(path), body, HttpStatus.CREATED);
+        }
+
+        private void put(String route, String path, Object body) {
+            send(route, token, HttpMethod.PUT, driverPath(path), body, HttpStatus.NO_CONTENT);
+        }
+
+        private void delete(String route, String path) {
+            send(route, token, HttpMethod.DELETE, driverPath(path), null, HttpStatus.NO_CONTENT);
+        }
+
+        private String driverPath(String path) {
+            return "/api/drivers/" + driverId + path;
+        }
+
+    }
+
+    private JsonNode send(String route, String token, HttpMethod method, String path, Object body, HttpStatus expected) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setBearerAuth(token);
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        long start = System.nanoTime();
+        ResponseEntity<JsonNode> response = restTemplate.exchange(
+                path, method, new HttpEntity<>(body, headers), JsonNode.class
+        );
+        long elapsed = System.nanoTime() - start;
+        boolean failed = response.getStatusCode() != expected;
+        if (recording) {
+            latencies.record(route, elapsed, failed);
+        }
+        if (failed) {
+            throw new IllegalStateException(String.format(
+                    "%s %s returned %s: %s", method, path, response.getStatusCode(), response.getBody()
+            ));
+        }
+        return response.getBody();
+    }
+
+}
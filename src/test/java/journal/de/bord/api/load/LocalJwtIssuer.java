@@ -0,0 +1,71 @@
+package journal.de.bord.api.load;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.crypto.RSASSASigner;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.NoSuchAlgorithmException;
+import java.security.interfaces.RSAPublicKey;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Date;
+
+/**
+ * Stands in for the authorization server. It signs the tokens with a key pair
+ * generated at startup and provides the key set verifying them.
+ */
+class LocalJwtIssuer {
+
+    private static final String KEY_ID = "load-test";
+
+    private final KeyPair keyPair;
+
+    LocalJwtIssuer() {
+        try {
+            KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+            generator.initialize(2048);
+            keyPair = generator.generateKeyPair();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Gets the public key set, as served by an authorization server.
+     */
+    String jwkSet() {
+        RSAKey key = new RSAKey.Builder((RSAPublicKey) keyPair.getPublic()).keyID(KEY_ID).build();
+        return new JWKSet(key).toString();
+    }
+
+    /**
+     * Issues a token valid for an hour, allowing the subject to read and write.
+     *
+     * @param subject is the identifier of the authenticated driver.
+     * @return the serialized token.
+     */
+    String issue(String subject) {
+        Instant now = Instant.now();
+        JWTClaimsSet claims = new JWTClaimsSet.Builder()
+                .subject(subject)
+                .claim("scope", "read write")
+                .issueTime(Date.from(now))
+                .expirationTime(Date.from(now.plus(1, ChronoUnit.HOURS)))
+                .build();
+        SignedJWT token = new SignedJWT(new JWSHeader.Builder(JWSAlgorithm.RS256).keyID(KEY_ID).build(), claims);
+        try {
+            token.sign(new RSASSASigner(keyPair.getPrivate()));
+        } catch (JOSEException e) {
+            throw new IllegalStateException(e);
+        }
+        return token.serialize();
+    }
+
+}
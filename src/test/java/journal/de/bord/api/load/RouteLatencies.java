@@ -0,0 +1,70 @@
+package journal.de.bord.api.load;
+
+import java.util.*;
+
+/**
+ * Records the latencies and the failures of the requests by route.
+ */
+class RouteLatencies {
+
+    private final Map<String, List<Long>> latencies = new TreeMap<>();
+
+    private final Map<String, Long> failures = new TreeMap<>();
+
+    synchronized void record(String route, long nanos, boolean failed) {
+        latencies.computeIfAbsent(route, r -> new ArrayList<>()).add(nanos);
+        if (failed) {
+            failures.merge(route, 1L, Long::sum);
+        }
+    }
+
+    synchronized void clear() {
+        latencies.clear();
+        failures.clear();
+    }
+
+    synchronized Set<String> routes() {
+        return new TreeSet<>(latencies.keySet());
+    }
+
+    synchronized long count(String route) {
+        return latencies.getOrDefault(route, Collections.emptyList()).size();
+    }
+
+    synchronized long failures(String route) {
+        return failures.getOrDefault(route, 0L);
+    }
+
+    /**
+     * Tells if a percentile of the latencies of a route is estimated by more
+     * than its slowest latency. With the nearest rank method, a percentile p
+     * is the slowest latency until there are 100 / (100 - p) latencies: 20
+     * for the p95 and 100 for the p99.
+     *
+     * @param route is the route.
+     * @param percentile is the percentile, between 0 and 100 excluded.
+     * @return true if the route has enough latencies.
+     */
+    synchronized boolean estimates(String route, double percentile) {
+        return count(route) >= Math.ceil(100 / (100 - percentile));
+    }
+
+    /**
+     * Gets a percentile of the latencies of a route, with the nearest rank
+     * method.
+     *
+     * @param route is the route.
+     * @param percentile is the percentile, between 0 and 100.
+     * @return the latency in milliseconds.
+     */
+    synchronized double percentile(String route, double percentile) {
+        List<Long> sorted = new ArrayList<>(latencies.getOrDefault(route, Collections.emptyList()));
+        if (sorted.isEmpty()) {
+            return 0;
+        }
+        Collections.sort(sorted);
+        int rank = (int) Math.ceil(percentile / 100 * sorted.size());
+        return sorted.get(Math.max(rank, 1) - 1) / 1e6;
+    }
+
+}
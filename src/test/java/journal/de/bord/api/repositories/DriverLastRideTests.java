@@ -0,0 +1,115 @@
+package journal.de.bord.api.repositories;
+
+import journal.de.bord.api.drivers.Driver;
+import journal.de.bord.api.drivers.DriverRepository;
+import journal.de.bord.api.drivers.DriverService;
+import journal.de.bord.api.drivers.DriverStatisticsBackfill;
+import journal.de.bord.api.journal.JournalGenerator;
+import journal.de.bord.api.rides.Ride;
+import journal.de.bord.api.rides.RideRepository;
+import journal.de.bord.api.rides.RideService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+public class DriverLastRideTests {
+
+    private static final String DRIVER = "last-ride-driver";
+    private static final String LEGACY_DRIVER = "legacy-last-ride-driver";
+
+    @Autowired
+    private JournalGenerator journalGenerator;
+
+    @Autowired
+    private DriverService driverService;
+
+    @Autowired
+    private DriverRepository driverRepository;
+
+    @Autowired
+    private RideRepository rideRepository;
+
+    @Autowired
+    private RideService rideService;
+
+    @Autowired
+    private DriverStatisticsBackfill backfill;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @BeforeEach
+    public void setUp() {
+        if (!driverService.exist(DRIVER)) {
+            journalGenerator.generate(DRIVER, 7, 10, 10);
+        }
+    }
+
+    private Long lastRideId() {
+        return lastRideId(DRIVER);
+    }
+
+    private Long lastRideId(String driverId) {
+        Driver driver = driverRepository.findWithLastRideByIdentifier(driverId).get();
+        return driver.getLastRide().map(Ride::getId).orElse(null);
+    }
+
+    private List<Ride> latestRides() {
+        return latestRides(DRIVER);
+    }
+
+    private List<Ride> latestRides(String driverId) {
+        return rideRepository.findLatestByDriverIdentifier(driverId, PageRequest.of(0, 2)).getContent();
+    }
+
+    @Test
+    public void importedRidesUpdateTheLastRide() {
+        assertThat(lastRideId()).isEqualTo(latestRides().get(0).getId());
+    }
+
+    @Test
+    public void deletingTheLastRideSelectsThePreviousOne() {
+        List<Ride> latest = latestRides();
+        Driver driver = driverService.findById(DRIVER);
+        rideService.deleteRideFor(driver, latest.get(0).getId().toString());
+        assertThat(lastRideId()).isEqualTo(latest.get(1).getId());
+    }
+
+    @Test
+    public void legacyDriversLastRideIsRecordedAtStartup() {
+        journalGenerator.generate(LEGACY_DRIVER, 29, 10, 10);
+        // The driver and its rides are left as they were before the last ride
+        // and the departure moments were stored.
+        transactionTemplate.execute(status -> {
+            entityManager.createQuery("UPDATE Driver d SET d.lastRide = NULL WHERE d.identifier = ?1")
+                    .setParameter(1, LEGACY_DRIVER)
+                    .executeUpdate();
+            return entityManager.createQuery("UPDATE Ride r\n"
+                    + "SET r.storedDepartureMoment = NULL, r.cumulativeRides = NULL, r.cumulativeDistance = NULL\n"
+                    + "WHERE r.driver.identifier = ?1")
+                    .setParameter(1, LEGACY_DRIVER)
+                    .executeUpdate();
+        });
+        assertThat(lastRideId(LEGACY_DRIVER)).isNull();
+
+        backfill.afterSingletonsInstantiated();
+
+        List<Ride> latest = latestRides(LEGACY_DRIVER);
+        assertThat(latest.get(0).getStoredDepartureMoment()).isAfter(latest.get(1).getStoredDepartureMoment());
+        assertThat(lastRideId(LEGACY_DRIVER)).isEqualTo(latest.get(0).getId());
+    }
+
+}
@@ -0,0 +1,100 @@
+package journal.de.bord.api.repositories;
+
+import journal.de.bord.api.drivers.*;
+import journal.de.bord.api.locations.Location;
+import journal.de.bord.api.locations.LocationDto;
+import journal.de.bord.api.locations.LocationService;
+import journal.de.bord.api.rides.RideDto;
+import journal.de.bord.api.rides.RideService;
+import journal.de.bord.api.rides.TrafficCondition;
+import journal.de.bord.api.stops.StopDto;
+import journal.de.bord.api.stops.StopService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.DefaultApplicationArguments;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+public class DriverStatisticsTests {
+
+    private static final String DRIVER = "statistics-driver";
+    private static final LocalDateTime MOMENT = LocalDateTime.of(2020, 3, 1, 8, 0);
+
+    @Autowired
+    private DriverService driverService;
+
+    @Autowired
+    private LocationService locationService;
+
+    @Autowired
+    private StopService stopService;
+
+    @Autowired
+    private RideService rideService;
+
+    @Autowired
+    private DriverStatisticsRebuilder rebuilder;
+
+    private Driver driver;
+
+    private void assertStatistics(long rides, long locations, long distance) {
+        assertThat(driverService.getDriverStatistics(DRIVER))
+                .isEqualTo(new DriverStatistics(DRIVER, rides, locations, distance));
+    }
+
+    private Location createLocation(String name) {
+        return locationService.findById(locationService.createNewLocationFor(
+                driver, new LocationDto(DRIVER + " " + name, 50.0, 4.0)
+        ));
+    }
+
+    private Long createStop(Location location, int hours, long odometerValue) {
+        StopDto data = new StopDto(MOMENT.plusHours(hours), location.getId(), odometerValue);
+        return stopService.createNewStopFor(driver, data, location);
+    }
+
+    @Test
+    public void statisticsFollowTheWritesAndMatchTheRebuild() throws Exception {
+        driverService.create(new DriverDto(DRIVER, 1000L));
+        driver = driverService.findById(DRIVER);
+        assertStatistics(0, 0, 0);
+
+        Location home = createLocation("home");
+        Location work = createLocation("work");
+        assertStatistics(0, 2, 0);
+
+        Long departure = createStop(home, 0, 1000L);
+        Long arrival = createStop(work, 1, 1050L);
+        Long returnDeparture = createStop(work, 2, 1060L);
+        Long returnArrival = createStop(home, 3, 1100L);
+        String first = rideService.create(driver, new RideDto(departure, arrival, null, null)).toString();
+        assertStatistics(1, 2, 50);
+        String second = rideService.create(driver, new RideDto(returnDeparture, returnArrival, null, null)).toString();
+        assertStatistics(2, 2, 90);
+
+        rideService.update(driver, second, new RideDto(returnDeparture, null, TrafficCondition.NORMAL, "Not arrived"));
+        assertStatistics(2, 2, 50);
+        rideService.update(driver, second, new RideDto(returnDeparture, returnArrival, TrafficCondition.NORMAL, null));
+        assertStatistics(2, 2, 90);
+
+        stopService.updateStopFor(arrival.toString(), driver, new StopDto(MOMENT.plusHours(1), work.getId(), 1055L), work);
+        assertStatistics(2, 2, 95);
+
+        rideService.deleteRideFor(driver, first);
+        assertStatistics(1, 2, 40);
+
+        Location other = createLocation("other");
+        assertStatistics(1, 3, 40);
+        locationService.deleteLocationFor(driver, other.getId().toString());
+        assertStatistics(1, 2, 40);
+
+        DriverStatistics maintained = driverService.getDriverStatistics(DRIVER);
+        rebuilder.run(new DefaultApplicationArguments("--rebuild-statistics"));
+        assertThat(driverService.getDriverStatistics(DRIVER)).isEqualTo(maintained);
+    }
+
+}
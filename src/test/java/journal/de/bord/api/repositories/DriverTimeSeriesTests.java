@@ -0,0 +1,219 @@
+package journal.de.bord.api.repositories;
+
+import journal.de.bord.api.drivers.*;
+import journal.de.bord.api.journal.JournalGenerator;
+import journal.de.bord.api.locations.Location;
+import journal.de.bord.api.locations.LocationDto;
+import journal.de.bord.api.locations.LocationService;
+import journal.de.bord.api.rides.Ride;
+import journal.de.bord.api.rides.RideDto;
+import journal.de.bord.api.rides.RideRepository;
+import journal.de.bord.api.rides.RideService;
+import journal.de.bord.api.rides.TrafficCondition;
+import journal.de.bord.api.stops.Stop;
+import journal.de.bord.api.stops.StopDto;
+import journal.de.bord.api.stops.StopService;
+import org.assertj.core.groups.Tuple;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+@SpringBootTest
+public class DriverTimeSeriesTests {
+
+    private static final String DRIVER = "time-series-driver";
+    private static final String BOUNDARY_DRIVER = "boundary-time-series-driver";
+    private static final String IMPORTED_DRIVER = "imported-time-series-driver";
+    private static final LocalDate FROM = LocalDate.of(2015, 1, 1);
+    private static final LocalDate TO = LocalDate.of(2016, 1, 1);
+
+    @Autowired
+    private JournalGenerator journalGenerator;
+
+    @Autowired
+    private DriverService driverService;
+
+    @Autowired
+    private DriverStatisticsService statisticsService;
+
+    @Autowired
+    private RideRepository rideRepository;
+
+    @Autowired
+    private RideService rideService;
+
+    @Autowired
+    private StopService stopService;
+
+    @Autowired
+    private LocationService locationService;
+
+    private List<Ride> rides(String driverId) {
+        Sort order = Sort.by("storedDepartureMoment", "id");
+        return rideRepository.findByDriverIdentifier(driverId, PageRequest.of(0, 100, order)).getContent();
+    }
+
+    @Test
+    public void bucketsHoldTheRidesOfTheirPeriod() {
+        journalGenerator.generate(DRIVER, 17, 5, 30);
+        Map<LocalDate, Long> distances = new TreeMap<>();
+        for (Ride ride : rides(DRIVER)) {
+            distances.merge(Granularity.WEEK.start(ride.getDepartureMoment().toLocalDate()), ride.getDistance(), Long::sum);
+        }
+        DriverTimeSeries series = driverService.getDriverTimeSeries(DRIVER, Granularity.WEEK, FROM, TO);
+        assertThat(series.getBuckets()).extracting(DriverTimeSeries.Bucket::getStart)
+                .containsExactlyElementsOf(distances.keySet());
+        assertThat(series.getBuckets()).extracting(DriverTimeSeries.Bucket::getDistance)
+                .containsExactlyElementsOf(distances.values());
+        DriverTimeSeries months = driverService.getDriverTimeSeries(DRIVER, Granularity.MONTH, FROM, TO);
+        assertThat(months.getBuckets().stream().mapToLong(DriverTimeSeries.Bucket::getRides).sum()).isEqualTo(30L);
+
+        List<Ride> rides = rides(DRIVER);
+        Driver driver = driverService.findById(DRIVER);
+        Ride edited = rides.get(3);
+        rideService.update(driver, edited.getId().toString(), new RideDto(
+                edited.getDeparture().getId(),
+                edited.getArrival().getId(),
+                edited.getTrafficCondition() == TrafficCondition.SLOW ? TrafficCondition.CALM : TrafficCondition.SLOW,
+                null
+        ));
+        Stop departure = rides.get(10).getDeparture();
+        StopDto moved = new StopDto(
+                departure.getMoment().minusDays(2),
+                departure.getLocation().getId(),
+                departure.getOdometerValue() - 10
+        );
+        stopService.updateStopFor(departure.getId().toString(), driver, moved, departure.getLocation());
+        rideService.deleteRideFor(driver, rides.get(20).getId().toString());
+
+        for (Granularity granularity : Granularity.values()) {
+            DriverTimeSeries maintained = driverService.getDriverTimeSeries(DRIVER, granularity, FROM, TO);
+            statisticsService.rebuild(DRIVER);
+            assertThat(driverService.getDriverTimeSeries(DRIVER, granularity, FROM, TO)).isEqualTo(maintained);
+        }
+    }
+
+    @Test
+    public void importedRidesAreAccountedForAsTheyAreSaved() {
+        // The rides are saved in two chunks, the second one continues the
+        // cumulative values of the first one.
+        journalGenerator.generate(IMPORTED_DRIVER, 31, 5, 1100);
+        LocalDate to = LocalDate.of(2020, 1, 1);
+        DriverStatistics statistics = driverService.getDriverStatistics(IMPORTED_DRIVER);
+        Map<Granularity, DriverTimeSeries> series = new EnumMap<>(Granularity.class);
+        for (Granularity granularity : Granularity.values()) {
+            series.put(granularity, driverService.getDriverTimeSeries(IMPORTED_DRIVER, granularity, FROM, to));
+        }
+        assertThat(statistics.getRides()).isEqualTo(1100L);
+        assertThat(statistics.getLocations()).isEqualTo(5L);
+
+        statisticsService.rebuild(IMPORTED_DRIVER);
+        assertThat(driverService.getDriverStatistics(IMPORTED_DRIVER)).isEqualTo(statistics);
+        for (Granularity granularity : Granularity.values()) {
+            assertThat(driverService.getDriverTimeSeries(IMPORTED_DRIVER, granularity, FROM, to))
+                    .isEqualTo(series.get(granularity));
+        }
+    }
+
+    private Long createRide(Driver driver, Location location, LocalDateTime departure, LocalDateTime arrival,
+                            long odometerValue, long distance) {
+        Long departureId = stopService.createNewStopFor(
+                driver, new StopDto(departure, location.getId(), odometerValue), location
+        );
+        Long arrivalId = stopService.createNewStopFor(
+                driver, new StopDto(arrival, location.getId(), odometerValue + distance), location
+        );
+        return rideService.create(driver, new RideDto(departureId, arrivalId, TrafficCondition.NORMAL, null));
+    }
+
+    private List<DriverTimeSeries.Bucket> buckets(Granularity granularity) {
+        LocalDate from = LocalDate.of(2020, 1, 1);
+        LocalDate to = LocalDate.of(2020, 3, 1);
+        return driverService.getDriverTimeSeries(BOUNDARY_DRIVER, granularity, from, to).getBuckets();
+    }
+
+    private static Tuple bucket(LocalDate start, long rides, long distance) {
+        return tuple(start, rides, distance);
+    }
+
+    private void assertBuckets(Granularity granularity, Tuple... expected) {
+        assertThat(buckets(granularity))
+                .extracting(DriverTimeSeries.Bucket::getStart, DriverTimeSeries.Bucket::getRides, DriverTimeSeries.Bucket::getDistance)
+                .containsExactly(expected);
+    }
+
+    @Test
+    public void bucketsFollowTheRidesAcrossThePeriodBoundaries() {
+        driverService.create(new DriverDto(BOUNDARY_DRIVER, 1000L));
+        Driver driver = driverService.findById(BOUNDARY_DRIVER);
+        Location location = locationService.findById(locationService.createNewLocationFor(
+                driver, new LocationDto(BOUNDARY_DRIVER + " home", 50.0, 4.0)
+        ));
+        // The rides depart on Friday the last day of January, then on the
+        // Saturday and the Sunday of the same week and on the next Monday.
+        Long january = createRide(driver, location,
+                LocalDateTime.of(2020, 1, 31, 23, 0), LocalDateTime.of(2020, 1, 31, 23, 30), 1000L, 10L);
+        createRide(driver, location,
+                LocalDateTime.of(2020, 2, 1, 0, 10), LocalDateTime.of(2020, 2, 1, 0, 40), 1010L, 20L);
+        createRide(driver, location,
+                LocalDateTime.of(2020, 2, 2, 23, 50), LocalDateTime.of(2020, 2, 3, 0, 10), 1030L, 30L);
+        createRide(driver, location,
+                LocalDateTime.of(2020, 2, 3, 8, 0), LocalDateTime.of(2020, 2, 3, 8, 30), 1060L, 40L);
+
+        assertBuckets(
+                Granularity.DAY,
+                bucket(LocalDate.of(2020, 1, 31), 1L, 10L),
+                bucket(LocalDate.of(2020, 2, 1), 1L, 20L),
+                bucket(LocalDate.of(2020, 2, 2), 1L, 30L),
+                bucket(LocalDate.of(2020, 2, 3), 1L, 40L)
+        );
+        assertBuckets(
+                Granularity.WEEK,
+                bucket(LocalDate.of(2020, 1, 27), 3L, 60L),
+                bucket(LocalDate.of(2020, 2, 3), 1L, 40L)
+        );
+        assertBuckets(
+                Granularity.MONTH,
+                bucket(LocalDate.of(2020, 1, 1), 1L, 10L),
+                bucket(LocalDate.of(2020, 2, 1), 3L, 90L)
+        );
+
+        // The Sunday ride moves to the Monday and the January ride is deleted.
+        Ride sunday = rides(BOUNDARY_DRIVER).get(2);
+        Stop departure = sunday.getDeparture();
+        StopDto moved = new StopDto(LocalDateTime.of(2020, 2, 3, 0, 0), location.getId(), departure.getOdometerValue());
+        stopService.updateStopFor(departure.getId().toString(), driver, moved, location);
+        rideService.deleteRideFor(driver, january.toString());
+
+        assertBuckets(
+                Granularity.DAY,
+                bucket(LocalDate.of(2020, 2, 1), 1L, 20L),
+                bucket(LocalDate.of(2020, 2, 3), 2L, 70L)
+        );
+        assertBuckets(
+                Granularity.WEEK,
+                bucket(LocalDate.of(2020, 1, 27), 1L, 20L),
+                bucket(LocalDate.of(2020, 2, 3), 2L, 70L)
+        );
+        assertBuckets(Granularity.MONTH, bucket(LocalDate.of(2020, 2, 1), 3L, 90L));
+
+        for (Granularity granularity : Granularity.values()) {
+            List<DriverTimeSeries.Bucket> maintained = buckets(granularity);
+            statisticsService.rebuild(BOUNDARY_DRIVER);
+            assertThat(buckets(granularity)).isEqualTo(maintained);
+        }
+    }
+
+}
@@ -0,0 +1,88 @@
+package journal.de.bord.api.repositories;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import journal.de.bord.api.drivers.Driver;
+import journal.de.bord.api.drivers.DriverService;
+import journal.de.bord.api.drivers.DriverTrafficMatrix;
+import journal.de.bord.api.journal.JournalGenerator;
+import journal.de.bord.api.rides.Ride;
+import journal.de.bord.api.rides.RideRepository;
+import journal.de.bord.api.rides.RideService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+public class DriverTrafficMatrixTests {
+
+    private static final String DRIVER = "traffic-matrix-driver";
+
+    @Autowired
+    private JournalGenerator journalGenerator;
+
+    @Autowired
+    private DriverService driverService;
+
+    @Autowired
+    private RideRepository rideRepository;
+
+    @Autowired
+    private RideService rideService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private double cacheCount(String result) {
+        return meterRegistry.counter("journal.traffic.cache", "result", result).count();
+    }
+
+    private static DriverTrafficMatrix.Hour cell(DriverTrafficMatrix matrix, LocalDateTime moment) {
+        return matrix.getDays().get(moment.getDayOfWeek().getValue() - 1).getHours().get(moment.getHour());
+    }
+
+    private static long rides(DriverTrafficMatrix matrix) {
+        return matrix.getDays().stream()
+                .flatMap(day -> day.getHours().stream())
+                .mapToLong(DriverTrafficMatrix.Hour::getRides)
+                .sum();
+    }
+
+    @Test
+    public void matrixIsCachedUntilTheRidesChange() {
+        journalGenerator.generate(DRIVER, 19, 5, 40);
+        List<Ride> rides = rideRepository.findByDriverIdentifier(DRIVER, PageRequest.of(0, 100)).getContent();
+        Ride ride = rides.get(0);
+        List<Ride> sameHour = rides.stream()
+                .filter(r -> r.getDepartureMoment().getDayOfWeek() == ride.getDepartureMoment().getDayOfWeek())
+                .filter(r -> r.getDepartureMoment().getHour() == ride.getDepartureMoment().getHour())
+                .collect(Collectors.toList());
+
+        double hits = cacheCount("hit");
+        double misses = cacheCount("miss");
+        DriverTrafficMatrix matrix = driverService.getDriverTrafficMatrix(DRIVER);
+        assertThat(matrix.getDays()).hasSize(7).allSatisfy(day -> assertThat(day.getHours()).hasSize(24));
+        assertThat(rides(matrix)).isEqualTo(40L);
+        DriverTrafficMatrix.Hour hour = cell(matrix, ride.getDepartureMoment());
+        assertThat(hour.getRides()).isEqualTo(sameHour.size());
+        assertThat(hour.getTrafficConditions().get(ride.getTrafficCondition())).isPositive();
+        assertThat(hour.getMeanDistance())
+                .isEqualTo(sameHour.stream().mapToLong(Ride::getDistance).average().getAsDouble());
+        assertThat(driverService.getDriverTrafficMatrix(DRIVER)).isSameAs(matrix);
+        assertThat(cacheCount("hit")).isEqualTo(hits + 1);
+        assertThat(cacheCount("miss")).isEqualTo(misses + 1);
+
+        Driver driver = driverService.findById(DRIVER);
+        rideService.deleteRideFor(driver, ride.getId().toString());
+        DriverTrafficMatrix updated = driverService.getDriverTrafficMatrix(DRIVER);
+        assertThat(updated).isNotSameAs(matrix);
+        assertThat(rides(updated)).isEqualTo(39L);
+    }
+
+}
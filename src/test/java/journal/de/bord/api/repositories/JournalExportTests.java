@@ -0,0 +1,127 @@
+package journal.de.bord.api.repositories;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import journal.de.bord.api.drivers.DriverDto;
+import journal.de.bord.api.drivers.DriverService;
+import journal.de.bord.api.journal.*;
+import journal.de.bord.api.rides.TrafficCondition;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+public class JournalExportTests {
+
+    private static final String DRIVER = "export-driver";
+    private static final String EMPTY_DRIVER = "export-empty-driver";
+
+    private static final LocalDateTime MOMENT = LocalDateTime.of(2020, 6, 1, 8, 0);
+
+    private static final String CSV_HEADER = "id,departure_moment,departure_odometer_value,"
+            + "departure_location,departure_latitude,departure_longitude,"
+            + "arrival_moment,arrival_odometer_value,"
+            + "arrival_location,arrival_latitude,arrival_longitude,"
+            + "traffic_condition,comment";
+
+    @Autowired
+    private JournalExportService exportService;
+
+    @Autowired
+    private JournalImportService importService;
+
+    @Autowired
+    private DriverService driverService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    /**
+     * Creates a driver with a finished ride between locations whose names
+     * hold a comma and quotes, followed by a ride without arrival.
+     */
+    private void givenDriverWithRides() throws Exception {
+        if (driverService.exist(DRIVER)) {
+            return;
+        }
+        driverService.create(new DriverDto(DRIVER, 1000L));
+        Map<String, Object> journal = new LinkedHashMap<>();
+        journal.put("locations", Arrays.asList(
+                new JournalLocation("home", "Home, sweet home", 50.5, 4.25),
+                new JournalLocation("work", "The \"Office\"", 50.75, 4.5)
+        ));
+        journal.put("stops", Arrays.asList(
+                new JournalStop("s0", "home", MOMENT, 1000L),
+                new JournalStop("s1", "work", MOMENT.plusHours(1), 1050L),
+                new JournalStop("s2", "work", MOMENT.plusHours(2), 1060L)
+        ));
+        journal.put("rides", Arrays.asList(
+                new JournalRide("s0", "s1", TrafficCondition.SLOW, "Traffic, then \"rain\"\nall along"),
+                new JournalRide("s2", null, TrafficCondition.NORMAL, null)
+        ));
+        byte[] document = objectMapper.writeValueAsBytes(journal);
+        JournalImportReport report = importService.importJournal(DRIVER, new ByteArrayInputStream(document));
+        assertThat(report.getErrors()).isEmpty();
+    }
+
+    private String export(String driverId, JournalExportFormat format) {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        exportService.export(driverId, format, output);
+        return new String(output.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private static String withoutId(String row) {
+        return row.substring(row.indexOf(','));
+    }
+
+    @Test
+    public void csvQuotesTheValuesHoldingSeparatorsOrQuotes() throws Exception {
+        givenDriverWithRides();
+        String[] rows = export(DRIVER, JournalExportFormat.CSV).split("\r\n");
+        assertThat(rows).hasSize(3);
+        assertThat(rows[0]).isEqualTo(CSV_HEADER);
+        assertThat(withoutId(rows[1])).isEqualTo(",2020-06-01T08:00,1000,\"Home, sweet home\",50.5,4.25,"
+                + "2020-06-01T09:00,1050,\"The \"\"Office\"\"\",50.75,4.5,"
+                + "SLOW,\"Traffic, then \"\"rain\"\"\nall along\"");
+    }
+
+    @Test
+    public void csvLeavesTheArrivalOfAnUnfinishedRideEmpty() throws Exception {
+        givenDriverWithRides();
+        String[] rows = export(DRIVER, JournalExportFormat.CSV).split("\r\n");
+        assertThat(withoutId(rows[2])).isEqualTo(",2020-06-01T10:00,1060,\"The \"\"Office\"\"\",50.75,4.5,"
+                + ",,,,,NORMAL,");
+    }
+
+    @Test
+    public void ndjsonWritesOneRidePerLine() throws Exception {
+        givenDriverWithRides();
+        String[] lines = export(DRIVER, JournalExportFormat.NDJSON).split("\n");
+        assertThat(lines).hasSize(2);
+        JsonNode finished = objectMapper.readTree(lines[0]);
+        assertThat(finished.fieldNames()).toIterable()
+                .containsExactly("id", "departure", "arrival", "trafficCondition", "comment");
+        assertThat(finished.at("/departure/location/name").asText()).isEqualTo("Home, sweet home");
+        assertThat(finished.at("/arrival/location/name").asText()).isEqualTo("The \"Office\"");
+        assertThat(finished.get("comment").asText()).isEqualTo("Traffic, then \"rain\"\nall along");
+        JsonNode unfinished = objectMapper.readTree(lines[1]);
+        assertThat(unfinished.at("/departure/odometerValue").asLong()).isEqualTo(1060L);
+        assertThat(unfinished.get("arrival").isNull()).isTrue();
+    }
+
+    @Test
+    public void driverWithoutRidesIsExportedWithoutRows() {
+        driverService.create(new DriverDto(EMPTY_DRIVER, 1000L));
+        assertThat(export(EMPTY_DRIVER, JournalExportFormat.CSV)).isEqualTo(CSV_HEADER + "\r\n");
+        assertThat(export(EMPTY_DRIVER, JournalExportFormat.NDJSON)).isEmpty();
+    }
+
+}
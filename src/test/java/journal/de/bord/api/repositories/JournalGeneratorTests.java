@@ -0,0 +1,68 @@
+package journal.de.bord.api.repositories;
+
+import journal.de.bord.api.journal.JournalExportFormat;
+import journal.de.bord.api.journal.JournalExportService;
+import journal.de.bord.api.journal.JournalGenerator;
+import journal.de.bord.api.journal.JournalImportReport;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest
+public class JournalGeneratorTests {
+
+    private static final int LOCATIONS = 20;
+    private static final int RIDES = 200;
+
+    @Autowired
+    private JournalGenerator generator;
+
+    @Autowired
+    private JournalExportService exportService;
+
+    /**
+     * Gets the CSV export of the driver's rides without their ids, which
+     * depend on the records saved before.
+     */
+    private List<String> exportedRides(String driverId) {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        exportService.export(driverId, JournalExportFormat.CSV, output);
+        String csv = new String(output.toByteArray(), StandardCharsets.UTF_8);
+        return Arrays.stream(csv.split("\r\n"))
+                .map(row -> row.substring(row.indexOf(',') + 1))
+                .collect(Collectors.toList());
+    }
+
+    @Test
+    public void sameSeedGeneratesTheSameJournal() {
+        JournalImportReport report = generator.generate("generator-first", 7, LOCATIONS, RIDES);
+        generator.generate("generator-second", 7, LOCATIONS, RIDES);
+        generator.generate("generator-other", 8, LOCATIONS, RIDES);
+
+        assertThat(report.getErrors()).isEmpty();
+        assertThat(report.getLocations()).isEqualTo(LOCATIONS);
+        assertThat(report.getStops()).isEqualTo(2 * RIDES);
+        assertThat(report.getRides()).isEqualTo(RIDES);
+        List<String> first = exportedRides("generator-first");
+        assertThat(first).hasSize(RIDES + 1);
+        assertThat(exportedRides("generator-second")).isEqualTo(first);
+        assertThat(exportedRides("generator-other")).isNotEqualTo(first);
+    }
+
+    @Test
+    public void existingDriverIsNotGeneratedAgain() {
+        generator.generate("generator-existing", 7, 1, 1);
+        assertThatThrownBy(() -> generator.generate("generator-existing", 7, 1, 1))
+                .isInstanceOf(IllegalStateException.class);
+    }
+
+}
@@ -0,0 +1,191 @@
+package journal.de.bord.api.repositories;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import journal.de.bord.api.drivers.DriverDto;
+import journal.de.bord.api.drivers.DriverService;
+import journal.de.bord.api.journal.*;
+import journal.de.bord.api.rides.Ride;
+import journal.de.bord.api.rides.RideRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+
+import java.io.ByteArrayInputStream;
+import java.time.LocalDateTime;
+import java.util.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+@SpringBootTest
+public class JournalImportTests {
+
+    private static final String LOCATIONS = "locations";
+    private static final String STOPS = "stops";
+    private static final String RIDES = "rides";
+
+    private static final LocalDateTime MOMENT = LocalDateTime.of(2020, 5, 1, 8, 0);
+
+    /**
+     * Is a comment longer than the ride comment column, the database refuses
+     * to save it.
+     */
+    private static final String TOO_LONG_COMMENT = String.join("", Collections.nCopies(300, "x"));
+
+    @Autowired
+    private JournalImportService importService;
+
+    @Autowired
+    private DriverService driverService;
+
+    @Autowired
+    private RideRepository rideRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final List<JournalLocation> locations = new ArrayList<>();
+    private final List<JournalStop> stops = new ArrayList<>();
+    private final List<JournalRide> rides = new ArrayList<>();
+
+    private JournalImportReport importJournal(String driverId) throws Exception {
+        driverService.create(new DriverDto(driverId, 1000L));
+        Map<String, Object> journal = new LinkedHashMap<>();
+        journal.put("locations", locations);
+        journal.put("stops", stops);
+        journal.put("rides", rides);
+        byte[] document = objectMapper.writeValueAsBytes(journal);
+        return importService.importJournal(driverId, new ByteArrayInputStream(document));
+    }
+
+    private void location(String reference, String name) {
+        locations.add(new JournalLocation(reference, name, 50.0, 4.0));
+    }
+
+    private void stop(String reference, String location, int hours, long odometerValue) {
+        stops.add(new JournalStop(reference, location, MOMENT.plusHours(hours), odometerValue));
+    }
+
+    private void ride(String departure, String arrival, String comment) {
+        rides.add(new JournalRide(departure, arrival, null, comment));
+    }
+
+    private static JournalImportError error(String section, long index, String message) {
+        return new JournalImportError(section, index, message);
+    }
+
+    private Ride lastRideOf(String driverId) {
+        return rideRepository.findLatestByDriverIdentifier(driverId, PageRequest.of(0, 1)).getContent().get(0);
+    }
+
+    @Test
+    public void validRecordsOfAMixedJournalAreImported() throws Exception {
+        location("home", "Mixed home");
+        location("blank", "");
+        location("work", "Mixed work");
+        stop("s0", "home", 0, 1000L);
+        stop("s1", "work", 1, 1050L);
+        stop("s2", "unknown", 2, 1060L);
+        stop("s3", "work", 3, -1L);
+        stop("s4", "work", 4, 1060L);
+        stop("s5", "home", 5, 1100L);
+        stop("s6", "home", 6, 1110L);
+        stop("s7", "work", 7, 1150L);
+        ride("s0", "s1", null);
+        ride("s1", "s0", null);
+        ride("s4", "s5", TOO_LONG_COMMENT);
+        ride("s6", "s7", "Back at work");
+
+        JournalImportReport report = importJournal("import-mixed");
+
+        assertThat(report.getLocations()).isEqualTo(2);
+        assertThat(report.getStops()).isEqualTo(6);
+        assertThat(report.getRides()).isEqualTo(2);
+        assertThat(report.getErrors())
+                .extracting(JournalImportError::getSection, JournalImportError::getIndex)
+                .containsExactly(
+                        tuple(LOCATIONS, 1L),
+                        tuple(STOPS, 2L),
+                        tuple(STOPS, 3L),
+                        tuple(RIDES, 1L),
+                        tuple(RIDES, 2L)
+                );
+        assertThat(report.getErrors().get(4).getMessage()).startsWith("The record could not be saved: ");
+        Ride last = lastRideOf("import-mixed");
+        assertThat(last.getComment()).isEqualTo("Back at work");
+        assertThat(last.getCumulativeRides()).isEqualTo(2L);
+        assertThat(last.getCumulativeDistance()).isEqualTo(90L);
+    }
+
+    @Test
+    public void duplicateStopIsRejectedBeforeBeingSaved() throws Exception {
+        location("home", "Duplicate home");
+        stop("first", "home", 0, 1000L);
+        stop("second", "home", 0, 1000L);
+        stop("third", "home", 1, 1000L);
+
+        JournalImportReport report = importJournal("import-duplicate");
+
+        assertThat(report.getStops()).isEqualTo(2);
+        assertThat(report.getErrors()).containsExactly(error(
+                STOPS,
+                1,
+                "A stop with the same moment, odometer value and location already exists."
+        ));
+    }
+
+    @Test
+    public void recordsReferencingARejectedRecordAreRejected() throws Exception {
+        location("home", "Rejected home");
+        location("home", "Rejected other home");
+        location("blank", "");
+        stop("s0", "home", 0, 1000L);
+        stop("s1", "blank", 1, 1050L);
+        stop("s2", "home", 2, -1L);
+        ride("s0", "s1", null);
+        ride("s0", "s2", null);
+
+        JournalImportReport report = importJournal("import-rejected");
+
+        assertThat(report.getLocations()).isEqualTo(1);
+        assertThat(report.getStops()).isEqualTo(1);
+        assertThat(report.getRides()).isZero();
+        assertThat(report.getErrors()).contains(
+                error(LOCATIONS, 1, "The reference is already used: home"),
+                error(STOPS, 1, "The location was rejected: blank"),
+                error(RIDES, 0, "The arrival was rejected: s1"),
+                error(RIDES, 1, "The arrival was rejected: s2")
+        );
+    }
+
+    @Test
+    public void rideRefusedByTheDatabaseIsTheOnlyOneRejectedFromItsChunk() throws Exception {
+        // The first chunk holds 1000 rides and the last one is refused. The
+        // ride of the next chunk departs before its arrival, it can only
+        // follow the ride before it.
+        int chunkRides = 1000;
+        location("home", "Chunk home");
+        for (int i = 0; i <= 2 * chunkRides; i++) {
+            stop("s" + i, "home", i, 1000L + 10L * i);
+        }
+        for (int i = 0; i < chunkRides - 1; i++) {
+            ride("s" + (2 * i), "s" + (2 * i + 1), null);
+        }
+        int last = 2 * (chunkRides - 1);
+        ride("s" + last, "s" + (last + 1), TOO_LONG_COMMENT);
+        ride("s" + last, "s" + (last + 2), "Next chunk");
+
+        JournalImportReport report = importJournal("import-chunk");
+
+        assertThat(report.getRides()).isEqualTo(chunkRides);
+        assertThat(report.getErrors())
+                .extracting(JournalImportError::getSection, JournalImportError::getIndex)
+                .containsExactly(tuple(RIDES, chunkRides - 1L));
+        Ride lastRide = lastRideOf("import-chunk");
+        assertThat(lastRide.getComment()).isEqualTo("Next chunk");
+        assertThat(lastRide.getCumulativeRides()).isEqualTo(chunkRides);
+        assertThat(lastRide.getCumulativeDistance()).isEqualTo(10L * (chunkRides - 1) + 20L);
+    }
+
+}
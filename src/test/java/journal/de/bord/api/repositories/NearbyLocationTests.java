@@ -0,0 +1,142 @@
+package journal.de.bord.api.repositories;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import journal.de.bord.api.drivers.Driver;
+import journal.de.bord.api.drivers.DriverStatisticsService;
+import journal.de.bord.api.drivers.DriverTrafficService;
+import journal.de.bord.api.locations.Location;
+import journal.de.bord.api.locations.LocationService;
+import journal.de.bord.api.locations.NearbyLocation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@Import({
+        LocationService.class,
+        DriverStatisticsService.class,
+        DriverTrafficService.class,
+        SimpleMeterRegistry.class
+})
+public class NearbyLocationTests {
+
+    private static final String DRIVER = "driver";
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private LocationService locationService;
+
+    @BeforeEach
+    public void setUp() {
+        Driver driver = entityManager.persist(new Driver(DRIVER, 1000L));
+        persistLocation(driver, "Brussels", 50.8467, 4.3525);
+        persistLocation(driver, "Leuven", 50.8798, 4.7005);
+        persistLocation(driver, "Antwerp", 51.2194, 4.4025);
+        persistLocation(driver, "Paris", 48.8566, 2.3522);
+        persistLocation(driver, "Auckland", -36.8485, 174.7633);
+        Driver other = entityManager.persist(new Driver("other", 1000L));
+        persistLocation(other, "Mechelen", 51.0259, 4.4776);
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    private void persistLocation(Driver driver, String name, double latitude, double longitude) {
+        Location location = new Location(name, latitude, longitude);
+        location.setId(null);
+        location.setDriver(driver);
+        entityManager.persist(location);
+    }
+
+    @Test
+    public void nearestLocationsAreSortedByDistance() {
+        List<NearbyLocation> nearby = locationService.findNearestLocationsFor(DRIVER, 50.85, 4.40, null, 3);
+        assertThat(names(nearby)).containsExactly("Brussels", "Leuven", "Antwerp");
+        assertThat(nearby.get(0).getDistance()).isBetween(3_000.0, 4_000.0);
+    }
+
+    @Test
+    public void nearestLocationsAreFoundWhateverTheirDistance() {
+        List<NearbyLocation> nearby = locationService.findNearestLocationsFor(DRIVER, -40.0, -170.0, null, 10);
+        assertThat(names(nearby)).hasSize(5).startsWith("Auckland");
+    }
+
+    @Test
+    public void locationsAreFilteredByRadius() {
+        List<NearbyLocation> nearby = locationService.findNearestLocationsFor(DRIVER, 50.85, 4.40, 40_000.0, 10);
+        assertThat(names(nearby)).containsExactly("Brussels", "Leuven");
+    }
+
+    @Test
+    public void locationsSavedWithoutCellAreFoundOnceLocated() {
+        entityManager.getEntityManager().createQuery("UPDATE Location l SET l.cell = NULL").executeUpdate();
+        entityManager.clear();
+        assertThat(locationService.findNearestLocationsFor(DRIVER, 50.85, 4.40, 40_000.0, 10)).isEmpty();
+
+        while (locationService.locateUnlocated() > 0) {
+            entityManager.flush();
+        }
+        entityManager.clear();
+        List<NearbyLocation> nearby = locationService.findNearestLocationsFor(DRIVER, 50.85, 4.40, 40_000.0, 10);
+        assertThat(names(nearby)).containsExactly("Brussels", "Leuven");
+    }
+
+    @Test
+    public void nearestLocationsMatchAnExhaustiveSearch() {
+        // The locations are spread over the globe and clustered around
+        // Brussels. The positions are drawn around Brussels, along the
+        // antimeridian and near the poles, where the searched areas wrap.
+        Driver driver = entityManager.persist(new Driver("random", 1000L));
+        Random random = new Random(1);
+        double[][] coordinates = new double[2000][];
+        for (int i = 0; i < coordinates.length; i++) {
+            coordinates[i] = i % 2 == 0
+                    ? new double[] {random.nextDouble() * 170 - 85, random.nextDouble() * 360 - 180}
+                    : new double[] {50.0 + random.nextDouble() * 2, 3.0 + random.nextDouble() * 3};
+            persistLocation(driver, "Random " + i, coordinates[i][0], coordinates[i][1]);
+        }
+        entityManager.flush();
+        entityManager.clear();
+        double[][] positions = {
+                {50.85, 4.40}, {51.9, 5.9}, {0.0, 179.99}, {-20.0, -179.99}, {89.0, 10.0}, {-89.0, -100.0}
+        };
+        for (double[] position : positions) {
+            List<String> expected = IntStream.range(0, coordinates.length)
+                    .boxed()
+                    .sorted(Comparator.comparingDouble(i -> haversine(position, coordinates[i])))
+                    .limit(5)
+                    .map(i -> "Random " + i)
+                    .collect(Collectors.toList());
+            List<NearbyLocation> nearby = locationService.findNearestLocationsFor(
+                    "random", position[0], position[1], null, 5
+            );
+            assertThat(names(nearby)).as("nearest of %s", Arrays.toString(position)).isEqualTo(expected);
+        }
+    }
+
+    private static double haversine(double[] from, double[] to) {
+        double latitude = Math.toRadians(to[0] - from[0]);
+        double longitude = Math.toRadians(to[1] - from[1]);
+        double a = Math.pow(Math.sin(latitude / 2), 2) + Math.cos(Math.toRadians(from[0]))
+                * Math.cos(Math.toRadians(to[0])) * Math.pow(Math.sin(longitude / 2), 2);
+        return 2 * Math.asin(Math.sqrt(a));
+    }
+
+    private static List<String> names(List<NearbyLocation> nearby) {
+        return nearby.stream().map(l -> l.getLocation().getName()).collect(Collectors.toList());
+    }
+
+}
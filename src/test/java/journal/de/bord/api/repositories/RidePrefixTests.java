@@ -0,0 +1,213 @@
+package journal.de.bord.api.repositories;
+
+import journal.de.bord.api.drivers.Driver;
+import journal.de.bord.api.drivers.DriverDto;
+import journal.de.bord.api.drivers.DriverPeriodStatistics;
+import journal.de.bord.api.drivers.DriverService;
+import journal.de.bord.api.drivers.DriverStatisticsRepository;
+import journal.de.bord.api.journal.JournalGenerator;
+import journal.de.bord.api.locations.Location;
+import journal.de.bord.api.locations.LocationDto;
+import journal.de.bord.api.locations.LocationService;
+import journal.de.bord.api.rides.Ride;
+import journal.de.bord.api.rides.RideDto;
+import journal.de.bord.api.rides.RideRepository;
+import journal.de.bord.api.rides.RideService;
+import journal.de.bord.api.stops.Stop;
+import journal.de.bord.api.stops.StopDto;
+import journal.de.bord.api.stops.StopService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+public class RidePrefixTests {
+
+    private static final String DRIVER = "ride-prefix-driver";
+    private static final String EDITED_DRIVER = "edited-ride-prefix-driver";
+    private static final String LEGACY_DRIVER = "legacy-ride-prefix-driver";
+    private static final String UNMEASURED_DRIVER = "unmeasured-ride-prefix-driver";
+    private static final String CONCURRENT_DRIVER = "concurrent-ride-prefix-driver";
+
+    @Autowired
+    private JournalGenerator journalGenerator;
+
+    @Autowired
+    private DriverService driverService;
+
+    @Autowired
+    private RideRepository rideRepository;
+
+    @Autowired
+    private RideService rideService;
+
+    @Autowired
+    private StopService stopService;
+
+    @Autowired
+    private LocationService locationService;
+
+    @Autowired
+    private DriverStatisticsRepository statisticsRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @BeforeEach
+    public void setUp() {
+        if (!driverService.exist(DRIVER)) {
+            journalGenerator.generate(DRIVER, 11, 5, 12);
+        }
+    }
+
+    private List<Ride> rides(String driverId) {
+        Sort order = Sort.by("storedDepartureMoment", "id");
+        return rideRepository.findByDriverIdentifier(driverId, PageRequest.of(0, 100, order)).getContent();
+    }
+
+    private void assertPrefixesAreConsistent(String driverId) {
+        long rides = 0;
+        long distance = 0;
+        for (Ride ride : rides(driverId)) {
+            rides++;
+            distance += ride.getDistance();
+            assertThat(ride.getCumulativeRides()).isEqualTo(rides);
+            assertThat(ride.getCumulativeDistance()).isEqualTo(distance);
+        }
+    }
+
+    private void updateStop(Stop stop, LocalDateTime moment, long odometerValue) {
+        StopDto data = new StopDto(moment, stop.getLocation().getId(), odometerValue);
+        Driver driver = driverService.findById(EDITED_DRIVER);
+        stopService.updateStopFor(stop.getId().toString(), driver, data, stop.getLocation());
+    }
+
+    @Test
+    public void periodsAreReadFromThePrefixes() {
+        assertPrefixesAreConsistent(DRIVER);
+        List<Ride> rides = rides(DRIVER);
+        LocalDateTime from = rides.get(3).getDepartureMoment();
+        LocalDateTime to = rides.get(7).getDepartureMoment();
+        long distance = rides.subList(3, 7).stream().mapToLong(Ride::getDistance).sum();
+        DriverPeriodStatistics period = driverService.getDriverStatistics(DRIVER, from, to);
+        assertThat(period.getRides()).isEqualTo(4L);
+        assertThat(period.getDistance()).isEqualTo(distance);
+        assertThat(driverService.getDriverStatistics(DRIVER, from, from).getRides()).isZero();
+    }
+
+    @Test
+    public void editedRidesUpdateThePrefixes() {
+        journalGenerator.generate(EDITED_DRIVER, 13, 5, 12);
+        List<Ride> rides = rides(EDITED_DRIVER);
+        Stop arrival = rides.get(4).getArrival();
+        updateStop(arrival, arrival.getMoment(), arrival.getOdometerValue() + 20);
+        assertPrefixesAreConsistent(EDITED_DRIVER);
+        Stop departure = rides.get(8).getDeparture();
+        updateStop(departure, rides.get(2).getDepartureMoment().minusMinutes(1), departure.getOdometerValue());
+        assertPrefixesAreConsistent(EDITED_DRIVER);
+        Driver driver = driverService.findById(EDITED_DRIVER);
+        rideService.deleteRideFor(driver, rides.get(5).getId().toString());
+        assertPrefixesAreConsistent(EDITED_DRIVER);
+    }
+
+    @Test
+    public void legacyRidesAreMeasuredWhenTheStatisticsAreRebuilt() {
+        journalGenerator.generate(LEGACY_DRIVER, 17, 5, 12);
+        // The rides and the statistics are left as they were before the
+        // cumulative values were stored.
+        transactionTemplate.execute(status -> {
+            entityManager.createQuery("UPDATE Ride r SET r.cumulativeRides = NULL, r.cumulativeDistance = NULL\n"
+                    + "WHERE r.driver.identifier = ?1")
+                    .setParameter(1, LEGACY_DRIVER)
+                    .executeUpdate();
+            return statisticsRepository.deleteByDriverIdentifier(LEGACY_DRIVER);
+        });
+        assertThat(rides(LEGACY_DRIVER)).extracting(Ride::getCumulativeRides).containsOnlyNulls();
+
+        assertThat(driverService.getDriverStatistics(LEGACY_DRIVER).getRides()).isEqualTo(12L);
+        assertPrefixesAreConsistent(LEGACY_DRIVER);
+    }
+
+    @Test
+    public void periodOfUnmeasuredRidesIsReadOnceTheyAreMeasured() {
+        journalGenerator.generate(UNMEASURED_DRIVER, 19, 5, 12);
+        List<Ride> rides = rides(UNMEASURED_DRIVER);
+        LocalDateTime from = rides.get(3).getDepartureMoment();
+        LocalDateTime to = rides.get(7).getDepartureMoment();
+        DriverPeriodStatistics expected = driverService.getDriverStatistics(UNMEASURED_DRIVER, from, to);
+        // The rides are left as they were before their departure moment and
+        // their cumulative values were stored, the statistics are kept.
+        transactionTemplate.execute(status -> entityManager.createQuery("UPDATE Ride r\n"
+                + "SET r.storedDepartureMoment = NULL, r.cumulativeRides = NULL, r.cumulativeDistance = NULL\n"
+                + "WHERE r.driver.identifier = ?1")
+                .setParameter(1, UNMEASURED_DRIVER)
+                .executeUpdate());
+
+        assertThat(driverService.getDriverStatistics(UNMEASURED_DRIVER, from, to)).isEqualTo(expected);
+        assertThat(expected.getRides()).isEqualTo(4L);
+        assertPrefixesAreConsistent(UNMEASURED_DRIVER);
+    }
+
+    @Test
+    public void concurrentRidesKeepThePrefixesConsistent() throws Exception {
+        int count = 40;
+        driverService.create(new DriverDto(CONCURRENT_DRIVER, 1000L));
+        Driver driver = driverService.findById(CONCURRENT_DRIVER);
+        Location location = locationService.findById(locationService.createNewLocationFor(
+                driver, new LocationDto(CONCURRENT_DRIVER + " home", 50.0, 4.0)
+        ));
+        LocalDateTime moment = LocalDateTime.of(2020, 8, 1, 8, 0);
+        List<RideDto> rides = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            StopDto departure = new StopDto(moment.plusHours(2 * i), location.getId(), 1000L + 20L * i);
+            StopDto arrival = new StopDto(moment.plusHours(2 * i + 1), location.getId(), 1010L + 20L * i + i % 7);
+            rides.add(new RideDto(
+                    stopService.createNewStopFor(driver, departure, location),
+                    stopService.createNewStopFor(driver, arrival, location),
+                    null,
+                    null
+            ));
+        }
+        // The rides are created in a random order so that most of them are
+        // inserted before rides created by the other threads.
+        Collections.shuffle(rides, new Random(3));
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Long>> created = new ArrayList<>();
+            for (RideDto ride : rides) {
+                created.add(executor.submit(() -> rideService.create(driver, ride)));
+            }
+            for (Future<Long> ride : created) {
+                ride.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertPrefixesAreConsistent(CONCURRENT_DRIVER);
+        assertThat(rides(CONCURRENT_DRIVER)).hasSize(count);
+        assertThat(driverService.getDriverStatistics(CONCURRENT_DRIVER).getRides()).isEqualTo(count);
+    }
+
+}
@@ -0,0 +1,122 @@
+package journal.de.bord.api.repositories;
+
+import journal.de.bord.api.drivers.Driver;
+import journal.de.bord.api.drivers.DriverRepository;
+import journal.de.bord.api.locations.Location;
+import journal.de.bord.api.rides.Ride;
+import journal.de.bord.api.rides.RideRepository;
+import journal.de.bord.api.stops.Stop;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+
+import javax.persistence.EntityManagerFactory;
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Counts the statements issued by the ride repository methods. The rides
+ * page, rides cursor and single ride endpoints are checked end to end by
+ * {@link journal.de.bord.api.controllers.StatementCountTests#rideEndpoints(int)},
+ * where each request issues one more statement to read the authenticated
+ * driver and the serialization of the rides is covered too.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+public class RideRepositoryTests {
+
+    private static final String DRIVER = "driver";
+    private static final int RIDES = 10;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private RideRepository rideRepository;
+
+    @Autowired
+    private DriverRepository driverRepository;
+
+    private Statistics statistics;
+
+    private Long lastRideId;
+
+    @BeforeEach
+    public void setUp() {
+        Driver driver = entityManager.persist(new Driver(DRIVER, 1000L));
+        LocalDateTime moment = LocalDateTime.of(2020, 1, 1, 8, 0);
+        for (int i = 0; i < RIDES; i++) {
+            Stop departure = persistStop(driver, "departure " + i, moment.plusDays(i), 1000L * i);
+            Stop arrival = persistStop(driver, "arrival " + i, moment.plusDays(i).plusHours(1), 1000L * i + 50);
+            Ride ride = new Ride(departure, arrival);
+            ride.setDriver(driver);
+            lastRideId = entityManager.persist(ride).getId();
+        }
+        entityManager.flush();
+        entityManager.clear();
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    private Stop persistStop(Driver driver, String name, LocalDateTime moment, long odometerValue) {
+        Location location = new Location(name, 50.0, 4.0);
+        location.setId(null);
+        location.setDriver(driver);
+        entityManager.persist(location);
+        Stop stop = new Stop(moment, odometerValue, location);
+        stop.setDriver(driver);
+        return entityManager.persist(stop);
+    }
+
+    @Test
+    public void ridesPageIsReadWithItsCountOnly() {
+        Sort sort = Sort.by("departure.moment").descending();
+        Page<Ride> page = rideRepository.findByDriverIdentifier(DRIVER, PageRequest.of(0, 5, sort));
+        page.getContent().forEach(RideRepositoryTests::readStops);
+        assertThat(page.getContent()).hasSize(5);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void ridesSliceIsReadInOneStatement() {
+        Slice<Ride> slice = rideRepository.findLatestByDriverIdentifier(DRIVER, PageRequest.of(0, RIDES));
+        slice.getContent().forEach(RideRepositoryTests::readStops);
+        assertThat(slice.getContent()).hasSize(RIDES);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void rideIsReadInOneStatement() {
+        Optional<Ride> ride = rideRepository.findByIdAndDriverIdentifier(lastRideId, DRIVER);
+        assertThat(ride).isPresent();
+        readStops(ride.get());
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void distancesAreSummedWithoutTheStops() {
+        LocalDateTime from = LocalDateTime.of(2020, 1, 3, 0, 0);
+        assertThat(driverRepository.sumDriverRidesDistances(DRIVER)).isEqualTo(50L * RIDES);
+        assertThat(driverRepository.sumDriverRidesDistancesBetween(DRIVER, from, from.plusDays(3))).isEqualTo(150L);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+        assertThat(statistics.getEntityLoadCount()).isZero();
+    }
+
+    private static void readStops(Ride ride) {
+        ride.getDeparture().getLocation().getName();
+        ride.getArrival().getLocation().getName();
+    }
+
+}
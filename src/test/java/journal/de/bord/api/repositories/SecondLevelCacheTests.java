@@ -0,0 +1,104 @@
+package journal.de.bord.api.repositories;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import journal.de.bord.api.drivers.Driver;
+import journal.de.bord.api.drivers.DriverDto;
+import journal.de.bord.api.drivers.DriverService;
+import journal.de.bord.api.locations.LocationDto;
+import journal.de.bord.api.locations.LocationService;
+import journal.de.bord.api.support.StatementCounter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import javax.persistence.EntityManagerFactory;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest(properties = {
+        "spring.jpa.properties.hibernate.cache.use_second_level_cache=true",
+        "spring.jpa.properties.hibernate.cache.use_query_cache=true"
+})
+public class SecondLevelCacheTests {
+
+    private static final String DRIVER = "cached-driver";
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private DriverService driverService;
+
+    @Autowired
+    private LocationService locationService;
+
+    private StatementCounter counter;
+
+    private Driver driver;
+
+    private Long locationId;
+
+    @BeforeEach
+    public void setUp() {
+        counter = new StatementCounter(entityManagerFactory);
+        driverService.create(new DriverDto(DRIVER, 1000L));
+        driver = driverService.findById(DRIVER);
+        locationId = locationService.createNewLocationFor(driver, new LocationDto("Cached", 50.0, 4.0));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        if (locationService.existsById(locationId)) {
+            locationService.deleteLocationFor(driver, locationId.toString());
+        }
+        driverService.deleteById(DRIVER);
+    }
+
+    @Test
+    public void locationsAreReadFromTheCache() {
+        locationService.findById(locationId);
+        counter.reset();
+        assertThat(locationService.findLocationFor(driver, locationId)).isPresent();
+        assertThat(locationService.findLocationFor(new Driver("other", 0L), locationId)).isEmpty();
+        assertThat(counter.statements()).isZero();
+        assertThat(meterRegistry.find("hibernate.second.level.cache.region.requests")
+                .tags("region", "journal.de.bord.api.locations.Location", "result", "hit")
+                .functionCounter()
+                .count()).isPositive();
+    }
+
+    @Test
+    public void updatedLocationsAreReadAgain() {
+        locationService.findById(locationId);
+        locationService.updateLocationFor(driver, locationId.toString(), new LocationDto("Renamed", 51.0, 5.0));
+        assertThat(locationService.findById(locationId).getName()).isEqualTo("Renamed");
+        locationService.deleteLocationFor(driver, locationId.toString());
+        assertThatThrownBy(() -> locationService.findById(locationId)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void locationNamesAreReadFromTheQueryCache() {
+        assertThat(locationService.existsByName("Cached")).isTrue();
+        counter.reset();
+        assertThat(locationService.existsByName("Cached")).isTrue();
+        assertThat(counter.statements()).isZero();
+        locationService.updateLocationFor(driver, locationId.toString(), new LocationDto("Renamed", 50.0, 4.0));
+        assertThat(locationService.existsByName("Cached")).isFalse();
+    }
+
+    @Test
+    public void updatedDriversAreReadAgain() {
+        counter.reset();
+        driverService.findById(DRIVER);
+        assertThat(counter.statements()).isZero();
+        driverService.update(new DriverDto(DRIVER, 2000L));
+        assertThat(driverService.findById(DRIVER).getObjective()).isEqualTo(2000L);
+    }
+
+}
@@ -0,0 +1,43 @@
+package journal.de.bord.api.support;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+
+import javax.persistence.EntityManagerFactory;
+
+/**
+ * Counts the SQL statements and the entity loads issued by Hibernate between
+ * a reset and a read. It relies on the Hibernate statistics, which are
+ * enabled in the test properties, and therefore counts the work of
+ * every thread: the tests using it should not run concurrently.
+ */
+public class StatementCounter {
+
+    private final Statistics statistics;
+
+    public StatementCounter(EntityManagerFactory entityManagerFactory) {
+        this.statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        if (!statistics.isStatisticsEnabled()) {
+            throw new IllegalStateException("The Hibernate statistics are disabled.");
+        }
+    }
+
+    public void reset() {
+        statistics.clear();
+    }
+
+    /**
+     * Gets the number of JDBC statements prepared since the last reset.
+     */
+    public long statements() {
+        return statistics.getPrepareStatementCount();
+    }
+
+    /**
+     * Gets the number of entities and collections loaded since the last reset.
+     */
+    public long loads() {
+        return statistics.getEntityLoadCount() + statistics.getCollectionLoadCount();
+    }
+
+}